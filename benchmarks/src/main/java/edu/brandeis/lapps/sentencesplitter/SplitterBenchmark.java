@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import edu.brandeis.nlp.tokenizer.Corpus;
+import edu.brandeis.nlp.tokenizer.SentenceSplitter;
+import edu.brandeis.nlp.tokenizer.SplitResult;
+import org.lappsgrid.serialization.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+/**
+ * Throughput of Splitter.execute() end to end, and of its parse, split and
+ * serialize steps on their own.
+ *
+ * The "tokens" input is a LIF document with a token view, as written by the
+ * splitter itself, the "packed" input has the same tokens as a packed token
+ * view, and the "text" input is a LIF document with only a text, so the
+ * splitter tokenizes it. Documents go up to 10 MB of text, a LIF token view
+ * over 50 MB of text would not fit in a Java string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "--add-modules=jdk.incubator.vector" })
+public class SplitterBenchmark {
+
+    @Param({ "1024", "65536", "1048576", "10485760" })
+    public int size;
+
+    @Param({ "0.02", "0.2" })
+    public double density;
+
+    @Param({ "tokens", "packed", "text" })
+    public String input;
+
+    private final Splitter splitter = new Splitter();
+    private final SentenceSplitter engine = new SentenceSplitter();
+
+    private String json;
+    private LifDocument doc;
+    private SplitOffsets offsets;
+
+    @Setup
+    public void setUp() throws IOException {
+        splitter.setTokenizeFallback(true);
+        String text = Corpus.generate(size, density, 42);
+        json = new Data<>(Uri.LIF, lif(text)).asJson();
+        if ("tokens".equals(input)) {
+            json = splitter.execute(json);
+        } else if ("packed".equals(input)) {
+            Splitter packing = new Splitter();
+            packing.setTokenizeFallback(true);
+            packing.setPackedTokens(true);
+            json = packing.execute(json);
+        }
+        doc = LifReader.read(json);
+        offsets = SplitOffsets.of(split(), !doc.hasTokens());
+    }
+
+    @Benchmark
+    public String execute() {
+        return splitter.execute(json);
+    }
+
+    @Benchmark
+    public LifDocument parse() throws IOException {
+        return LifReader.read(json);
+    }
+
+    @Benchmark
+    public SplitResult split() {
+        return doc.hasTokens() ? engine.split(doc.text, doc.tokenOffsets) : engine.tokenize(doc.text);
+    }
+
+    @Benchmark
+    public long serialize() throws IOException {
+        CountingWriter out = new CountingWriter();
+        splitter.write(doc, offsets, out, true);
+        return out.count;
+    }
+
+    private static Map<String, Object> lif(String text) {
+        Map<String, Object> textObject = new LinkedHashMap<>();
+        textObject.put("@value", text);
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("text", textObject);
+        payload.put("views", new ArrayList<>());
+        return payload;
+    }
+
+    /**
+     * Discards what is written, so serializing is measured without the cost of
+     * growing a buffer.
+     */
+    private static final class CountingWriter extends Writer {
+
+        long count;
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,32 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Entry point of the benchmarks jar. Takes the usual JMH command line options
+ * and always adds the GC profiler, so allocation rates are reported next to
+ * throughput. Results are also written as JSON to jmh-result.json unless
+ * another result format is asked for, to compare releases with.
+ */
+public final class Benchmarks {
+
+	private Benchmarks() { }
+
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions options = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder()
+				.parent(options)
+				.addProfiler(GCProfiler.class);
+		if (!options.getResultFormat().hasValue())
+			builder.resultFormat(ResultFormatType.JSON);
+		new Runner(builder.build()).run();
+	}
+
+}
@@ -0,0 +1,142 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Generated English-like corpora for the benchmarks.
+ *
+ * Sentences are drawn from a fixed vocabulary with quotes, parentheses and
+ * commas, and a given fraction of the words is replaced by an abbreviation from
+ * the tokenizer's own lists. Half of those are end abbreviations that are
+ * followed by an initial token, so the abbreviation test and the lookahead both
+ * get exercised. The same size, density and seed always give the same text.
+ */
+public final class Corpus {
+
+	private static final String[] WORDS = {
+		"the", "of", "and", "to", "in", "was", "he", "is", "for", "that", "it",
+		"with", "as", "his", "on", "be", "at", "by", "had", "not", "are", "but",
+		"from", "or", "have", "an", "they", "which", "one", "you", "were", "all",
+		"her", "would", "there", "their", "we", "him", "been", "has", "when",
+		"who", "will", "more", "no", "if", "out", "so", "said", "what", "up",
+		"its", "about", "into", "than", "them", "can", "only", "other", "new",
+		"some", "could", "time", "these", "two", "may", "then", "do", "first",
+		"any", "my", "now", "such", "like", "our", "over", "man", "me", "even",
+		"most", "made", "after", "also", "did", "many", "before", "must",
+		"through", "back", "years", "where", "much", "your", "way", "well",
+		"down", "should", "because", "each", "just", "those", "people", "how",
+		"too", "little", "state", "good", "very", "make", "world", "still",
+		"own", "see", "men", "work", "long", "get", "here", "between", "both",
+		"life", "being", "under", "never", "day", "same", "another", "know",
+		"while", "last", "might", "us", "great", "old", "year", "off", "come",
+		"since", "against", "go", "came", "right", "used", "take", "three" };
+
+	private static final String[] CAPITALIZED = {
+		"The", "In", "But", "He", "It", "And", "For", "They", "As", "At",
+		"This", "Some", "If", "John", "Mary", "London", "Boston", "Washington" };
+
+	private static final String[] FINALS = { ".", ".", ".", ".", "?", "!" };
+
+	private Corpus() { }
+
+	/**
+	 * Generate a text of the given number of characters.
+	 *
+	 * @param length number of characters
+	 * @param density fraction of the words that is an abbreviation
+	 * @param seed
+	 * @return the text
+	 */
+	public static String generate(int length, double density, long seed)
+	{
+		String[] abbreviations = sorted(Abbreviations.ABBREVS);
+		String[] endAbbreviations = sorted(Abbreviations.END_ABBREVS);
+		String[] initials = sorted(Token.INITIAL_TOKENS);
+		Random random = new Random(seed);
+		StringBuilder text = new StringBuilder(length + 200);
+		while (text.length() < length) {
+			int words = 6 + random.nextInt(20);
+			text.append(pick(random, CAPITALIZED));
+			for (int w = 1; w < words; w++) {
+				text.append(random.nextInt(40) == 0 ? "  " : " ");
+				double r = random.nextDouble();
+				if (r < density / 2) {
+					text.append(pick(random, abbreviations)); }
+				else if (r < density) {
+					text.append(pick(random, endAbbreviations)).append(' ');
+					text.append(pick(random, initials)); }
+				else if (r < density + 0.02) {
+					text.append('"').append(pick(random, WORDS)).append("\","); }
+				else if (r < density + 0.04) {
+					text.append('(').append(pick(random, WORDS)).append(')'); }
+				else {
+					text.append(pick(random, WORDS));
+					if (random.nextInt(12) == 0)
+						text.append(','); } }
+			text.append(pick(random, FINALS));
+			text.append(random.nextInt(8) == 0 ? "\n\n" : " "); }
+		text.setLength(length);
+		return text.toString();
+	}
+
+	/**
+	 * The tokens of a text as found by the tokenizer, not linked to each other.
+	 */
+	public static ArrayList<Token> tokens(String text)
+	{
+		SplitResult result = new SentenceSplitter().tokenize(text);
+		ArrayList<Token> tokens = new ArrayList<>(result.tokenCount());
+		for (int i = 0; i < result.tokenCount(); i++)
+			tokens.add(result.token(i));
+		return tokens;
+	}
+
+	/**
+	 * Write the tokens of a text to a temporary token file in the format read
+	 * by Tokenizer.splitFile(), the file is deleted when the JVM exits.
+	 */
+	public static File tokenFile(String text) throws IOException
+	{
+		File file = File.createTempFile("corpus", ".tok");
+		file.deleteOnExit();
+		SplitResult result = new SentenceSplitter().tokenize(text);
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < result.tokenCount(); i++) {
+				int begin = result.tokenBegin(i);
+				int end = result.tokenEnd(i);
+				writer.write(begin + " " + end + " " + text.substring(begin, end) + "\n"); } }
+		return file;
+	}
+
+	/**
+	 * Write the tokens of a text to a temporary binary token file, the file is
+	 * deleted when the JVM exits.
+	 */
+	public static File binaryTokenFile(String text) throws IOException
+	{
+		File file = File.createTempFile("corpus", ".btok");
+		file.deleteOnExit();
+		TokenFile.convert(tokenFile(text).toPath(), file.toPath());
+		return file;
+	}
+
+	private static String pick(Random random, String[] strings)
+	{
+		return strings[random.nextInt(strings.length)];
+	}
+
+	private static String[] sorted(Set<String> strings)
+	{
+		return new TreeSet<>(strings).toArray(new String[0]);
+	}
+
+}
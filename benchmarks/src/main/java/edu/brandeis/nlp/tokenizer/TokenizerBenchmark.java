@@ -0,0 +1,79 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Throughput of the Tokenizer entry points on generated corpora from 1 KB to
+ * 50 MB, with few and with many abbreviations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "--add-modules=jdk.incubator.vector" })
+public class TokenizerBenchmark {
+
+	@Param({ "1024", "65536", "1048576", "52428800" })
+	public int size;
+
+	@Param({ "0.02", "0.2" })
+	public double density;
+
+	private String text;
+	private ArrayList<Token> tokens;
+	private File tokenFile;
+	private File binaryTokenFile;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		this.text = Corpus.generate(this.size, this.density, 42);
+		this.tokens = Corpus.tokens(this.text);
+		this.tokenFile = Corpus.tokenFile(this.text);
+		this.binaryTokenFile = Corpus.binaryTokenFile(this.text);
+	}
+
+	@Benchmark
+	public TokenizedText tokenizeText()
+	{
+		return new Tokenizer().tokenizeText(this.text);
+	}
+
+	@Benchmark
+	public TokenizedText splitText()
+	{
+		return new Tokenizer().splitText(this.text, this.tokens);
+	}
+
+	@Benchmark
+	public ArrayList<Token> readTokens() throws IOException
+	{
+		Tokenizer tokenizer = new Tokenizer();
+		tokenizer.readTokens(this.tokenFile);
+		return tokenizer.tokens;
+	}
+
+	@Benchmark
+	public int[] readBinaryTokens() throws IOException
+	{
+		return TokenFile.read(this.binaryTokenFile.toPath());
+	}
+
+}
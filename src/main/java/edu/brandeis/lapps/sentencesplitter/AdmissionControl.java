@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of documents and the number of characters of input that
+ * are processed at the same time.
+ *
+ * A document that does not fit waits in a bounded queue, in arrival order, for
+ * at most the timeout. It is shed when the queue is full or the timeout passes,
+ * so under overload requests fail fast instead of piling up on the heap. A
+ * document larger than the character limit is admitted when nothing else is in
+ * flight, otherwise it could never run.
+ *
+ * The limits can be changed while documents are in flight, those documents
+ * still count against the new limits.
+ */
+final class AdmissionControl {
+
+    // guarded by the lock, like the counts
+    private int maxDocuments;
+    private long maxChars;
+    private int maxQueue;
+    private long timeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Thread> queue = new ArrayDeque<>();
+    private int documents = 0;
+    private long chars = 0;
+
+    /**
+     * @param maxDocuments maximum number of documents in flight, 0 for no limit
+     * @param maxChars maximum number of characters in flight, 0 for no limit
+     * @param maxQueue maximum number of waiting documents, 0 to shed at once
+     * @param timeoutMillis maximum time a document waits
+     */
+    AdmissionControl(int maxDocuments, long maxChars, int maxQueue, long timeoutMillis) {
+        configure(maxDocuments, maxChars, maxQueue, timeoutMillis);
+    }
+
+    /**
+     * Change the limits, see the constructor. Documents that wait are admitted
+     * if they fit the new limits, a document keeps the timeout it started
+     * waiting with.
+     */
+    void configure(int maxDocuments, long maxChars, int maxQueue, long timeoutMillis) {
+        lock.lock();
+        try {
+            this.maxDocuments = maxDocuments;
+            this.maxChars = maxChars;
+            this.maxQueue = maxQueue;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until a document of the given size may be processed. Returns false
+     * if it is shed, otherwise release() must be called when it is done. A
+     * document whose wait is interrupted is counted as shed as well.
+     */
+    boolean acquire(long size) throws InterruptedException {
+        SplitterMetrics metrics = SplitterMetrics.get();
+        lock.lock();
+        try {
+            if (queue.isEmpty() && fits(size)) {
+                admit(size);
+                return true;
+            }
+            if (queue.size() >= maxQueue) {
+                metrics.rejected();
+                return false;
+            }
+            Thread self = Thread.currentThread();
+            queue.addLast(self);
+            metrics.queued(1);
+            try {
+                long nanos = timeoutNanos;
+                while (queue.peekFirst() != self || !fits(size)) {
+                    if (nanos <= 0) {
+                        metrics.rejected();
+                        return false;
+                    }
+                    try {
+                        nanos = changed.awaitNanos(nanos);
+                    } catch (InterruptedException e) {
+                        metrics.rejected();
+                        throw e;
+                    }
+                }
+                admit(size);
+                return true;
+            } finally {
+                queue.remove(self);
+                metrics.queued(-1);
+                // the next document in the queue may fit now
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long size) {
+        lock.lock();
+        try {
+            documents--;
+            chars -= size;
+            SplitterMetrics.get().inFlight(-1, -size);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean fits(long size) {
+        if (maxDocuments > 0 && documents >= maxDocuments)
+            return false;
+        return maxChars == 0 || documents == 0 || chars + size <= maxChars;
+    }
+
+    private void admit(long size) {
+        documents++;
+        chars += size;
+        SplitterMetrics.get().inFlight(1, size);
+    }
+}
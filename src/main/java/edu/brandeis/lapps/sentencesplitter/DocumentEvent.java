@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for processing one document, from reading the input to having
+ * written the result.
+ */
+@Name("edu.brandeis.lapps.sentencesplitter.Document")
+@Label("Splitter Document")
+@Category({"LAPPS", "Splitter"})
+@Description("A document processed by the splitter service")
+@StackTrace(false)
+final class DocumentEvent extends Event {
+
+    @Label("Input Length")
+    @Description("Number of characters of the JSON input")
+    long inputLength;
+
+    @Label("Text Length")
+    long textLength;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Sentences")
+    int sentences;
+
+    @Label("Tokenized")
+    @Description("Whether the service tokenized the text because the input had no tokens")
+    boolean tokenized;
+
+    @Label("Cached")
+    @Description("Whether the sentences were taken from the result cache")
+    boolean cached;
+
+    @Label("Error")
+    String error;
+
+    private static final EventType TYPE = EventType.getEventType(DocumentEvent.class);
+
+    /**
+     * Start an event, returns null if JFR does not record it so that nothing is
+     * allocated for it.
+     */
+    static DocumentEvent start() {
+        if (!TYPE.isEnabled())
+            return null;
+        DocumentEvent event = new DocumentEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ *
+ * Every power of two is divided into eight buckets, so a percentile is off by
+ * at most an eighth of its value. Recording is a few atomic increments and never
+ * allocates, so it can be done on every request.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(index(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Return a summary in microseconds. Concurrent updates may or may not be
+     * included.
+     */
+    LatencySummary summary() {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        double mean = total == 0 ? 0 : sum.sum() / (double) count.sum() / 1000;
+        return new LatencySummary(total, mean,
+                percentile(snapshot, total, 0.50) / 1000,
+                percentile(snapshot, total, 0.90) / 1000,
+                percentile(snapshot, total, 0.99) / 1000,
+                max.get() / 1000);
+    }
+
+    private static long percentile(long[] counts, long total, double fraction) {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0)
+                return highest(i);
+        }
+        return 0;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The highest value that goes into the bucket.
+     */
+    static long highest(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of a latency histogram, in microseconds. Shows up in JMX clients as
+ * a composite value with one item per getter.
+ */
+public final class LatencySummary {
+
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"})
+    public LatencySummary(long count, double mean, long p50, long p90, long p99, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%dus p90=%dus p99=%dus max=%dus",
+                count, mean, p50, p90, p99, max);
+    }
+}
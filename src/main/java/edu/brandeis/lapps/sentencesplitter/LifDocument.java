@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of a LIF document the splitter needs, as produced by {@link LifReader}.
+ *
+ * Only the text and the offsets of the last token view are decoded, everything
+ * else (the other payload members and all views) is kept as raw JSON so it can
+ * be written back out unchanged by {@link LifWriter}. Raw JSON refers back into
+ * the input string, so a document costs little more than the input itself.
+ */
+final class LifDocument {
+
+    String discriminator;
+    String text;
+    String language;
+
+    /** The output profile named in the parameters of the input, null if there is none. */
+    String profile;
+
+    /** Payload members other than text and views, as raw JSON, in input order. */
+    final Map<String, Raw> members = new LinkedHashMap<>();
+
+    /** All views of the input, as raw JSON, in input order. */
+    final List<Raw> views = new ArrayList<>();
+    private final Set<String> viewIds = new HashSet<>();
+
+    /** Index in views of the last view that contains tokens, -1 if there is none. */
+    int tokenView = -1;
+
+    /** Begin and end offsets of the tokens in the token view, as consecutive pairs. */
+    int[] tokenOffsets;
+
+    void addView(Raw json, String id) {
+        this.views.add(json);
+        if (id != null)
+            this.viewIds.add(id);
+    }
+
+    boolean hasTokens() {
+        return this.tokenOffsets != null;
+    }
+
+    /**
+     * Return view identifiers that are not used by any of the views in the
+     * document. The document is not changed, so writing it out more than once
+     * gives the same identifiers.
+     */
+    String[] newViewIds(int count) {
+        String[] ids = new String[count];
+        int n = this.views.size();
+        for (int i = 0; i < count; i++) {
+            while (this.viewIds.contains("v" + n))
+                n++;
+            ids[i] = "v" + n++;
+        }
+        return ids;
+    }
+
+    /**
+     * A JSON value as a range of characters of the string it was read from, so
+     * that keeping a view does not copy it.
+     */
+    static final class Raw {
+
+        final String source;
+        final int start;
+        final int end;
+
+        Raw(String source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        Raw(String json) {
+            this(json, 0, json.length());
+        }
+
+        @Override
+        public String toString() {
+            return source.substring(start, end);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import edu.brandeis.lapps.sentencesplitter.LifDocument.Raw;
+import org.lappsgrid.serialization.Data;
+import org.lappsgrid.serialization.Serializer;
+import org.lappsgrid.serialization.lif.Annotation;
+import org.lappsgrid.serialization.lif.Container;
+import org.lappsgrid.serialization.lif.View;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+/**
+ * Reads the parts of a LIF document that the splitter needs into a {@link LifDocument}.
+ *
+ * The default {@link #read(String)} is a pull parser over the JSON string. It
+ * decodes the text and the start and end offsets of the annotations in the last
+ * token view (or its {@link PackedTokens}), and the output profile from the parameters, and keeps all other
+ * payload members and views as raw substrings of the input, so no objects are
+ * created for views the splitter never looks at.
+ * {@link #readContainer(String)} goes through the LAPPS Serializer instead.
+ */
+final class LifReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /** Returned by readView for a token view with packed tokens, which are already decoded. */
+    private static final int PACKED = -2;
+
+    private LifReader() { }
+
+    /**
+     * Pull-parse a LIF JSON string.
+     *
+     * @param json the input of the service
+     * @return the document, with the text, the token offsets and the raw views
+     * @throws IOException if the input is not well-formed JSON or not a LIF document
+     */
+    static LifDocument read(String json) throws IOException {
+        LifDocument doc = new LifDocument();
+        int annotationsStart = -1;
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("discriminator".equals(name)) {
+                    doc.discriminator = parser.getText();
+                } else if ("payload".equals(name) && value == JsonToken.VALUE_STRING) {
+                    doc.text = parser.getText();
+                } else if ("payload".equals(name) && value == JsonToken.START_OBJECT) {
+                    annotationsStart = readPayload(parser, json, doc);
+                } else if ("parameters".equals(name) && value == JsonToken.START_OBJECT) {
+                    readParameters(parser, doc);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (annotationsStart >= 0)
+            doc.tokenOffsets = readOffsets(json, annotationsStart);
+        return doc;
+    }
+
+    /**
+     * Split a JSON array into the raw JSON of its elements.
+     *
+     * @param json a JSON array
+     * @return the elements of the array, as raw JSON
+     * @throws IOException if the input is not a well-formed JSON array
+     */
+    static List<String> readArray(String json) throws IOException {
+        List<String> elements = new ArrayList<>();
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null)
+                    throw new IOException("Unexpected end of the JSON array");
+                elements.add(raw(parser, json).toString());
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Read a LIF JSON string with the LAPPS Serializer and copy the result into
+     * a LifDocument, serializing the views back to JSON.
+     *
+     * @param json the input of the service
+     * @return the document
+     * @throws IOException if the packed tokens of the token view cannot be decoded
+     */
+    @SuppressWarnings("unchecked")
+    static LifDocument readContainer(String json) throws IOException {
+        Data data = Serializer.parse(json, Data.class);
+        LifDocument doc = new LifDocument();
+        doc.discriminator = data.getDiscriminator();
+        Map parameters = data.getParameters();
+        if (parameters != null && parameters.get("profile") != null)
+            doc.profile = parameters.get("profile").toString();
+        Object payload = data.getPayload();
+        if (!(payload instanceof Map)) {
+            doc.text = payload == null ? null : payload.toString();
+            return doc;
+        }
+        Container container = new Container((Map) payload);
+        doc.text = container.getText();
+        doc.language = container.getLanguage();
+        doc.members.put("@context", new Raw(Serializer.toJson(container.getContext())));
+        doc.members.put("metadata", new Raw(Serializer.toJson(container.getMetadata())));
+        List<View> views = container.getViews();
+        for (View view : views)
+            doc.addView(new Raw(Serializer.toJson(view)), view.getId());
+        List<View> tokenViews = container.findViewsThatContain(Uri.TOKEN);
+        if (tokenViews.size() > 0) {
+            View tokenView = tokenViews.get(tokenViews.size() - 1);
+            doc.tokenView = views.indexOf(tokenView);
+            Object packed = tokenView.getMetadata().get(PackedTokens.METADATA);
+            if (packed != null) {
+                doc.tokenOffsets = PackedTokens.decode(packed.toString());
+                return doc;
+            }
+            List<Annotation> annotations = tokenView.getAnnotations();
+            int[] offsets = new int[annotations.size() * 2];
+            int i = 0;
+            for (Annotation token : annotations) {
+                offsets[i++] = Math.toIntExact(token.getStart());
+                offsets[i++] = Math.toIntExact(token.getEnd());
+            }
+            doc.tokenOffsets = offsets;
+        }
+        return doc;
+    }
+
+    /**
+     * Read the members of the payload object. Returns the character offset of the
+     * annotations array of the last token view, -1 if there is no token view, or
+     * PACKED if the last token view has packed tokens.
+     */
+    private static int readPayload(JsonParser parser, String json, LifDocument doc) throws IOException {
+        int annotationsStart = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("text".equals(name) && value == JsonToken.START_OBJECT) {
+                readText(parser, doc);
+            } else if ("views".equals(name)) {
+                // the writer adds the views itself, so they cannot be kept as a raw member
+                expect(parser, value, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    int start = readView(parser, json, doc);
+                    if (start != -1)
+                        annotationsStart = start;
+                }
+            } else {
+                doc.members.put(name, raw(parser, json));
+            }
+        }
+        return annotationsStart;
+    }
+
+    private static void readParameters(JsonParser parser, LifDocument doc) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("profile".equals(name) && value.isScalarValue())
+                doc.profile = parser.getText();
+            else
+                parser.skipChildren();
+        }
+    }
+
+    private static void readText(JsonParser parser, LifDocument doc) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("@value".equals(name))
+                doc.text = parser.getText();
+            else if ("@language".equals(name))
+                doc.language = parser.getText();
+            else
+                parser.skipChildren();
+        }
+    }
+
+    /**
+     * Read one view and add its raw JSON to the document. Only the id, the
+     * metadata and the position of the annotations array are looked at. Returns
+     * the character offset of the annotations array if this is a token view,
+     * PACKED if it is a token view with packed tokens, which are decoded into the
+     * document, and -1 otherwise.
+     */
+    private static int readView(JsonParser parser, String json, LifDocument doc) throws IOException {
+        int start = offset(parser.getTokenLocation().getCharOffset());
+        String id = null;
+        Metadata metadata = null;
+        int annotationsStart = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("id".equals(name)) {
+                id = parser.getText();
+            } else if ("metadata".equals(name) && value == JsonToken.START_OBJECT) {
+                metadata = readMetadata(parser);
+            } else if ("annotations".equals(name) && value == JsonToken.START_ARRAY) {
+                annotationsStart = offset(parser.getTokenLocation().getCharOffset());
+                parser.skipChildren();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        int end = offset(parser.getCurrentLocation().getCharOffset());
+        doc.addView(new Raw(json, start, end), id);
+        if (metadata == null || !metadata.hasTokens)
+            return -1;
+        doc.tokenView = doc.views.size() - 1;
+        if (metadata.packedTokens != null) {
+            doc.tokenOffsets = PackedTokens.decode(metadata.packedTokens);
+            return PACKED;
+        }
+        return annotationsStart >= 0 ? annotationsStart : json.length();
+    }
+
+    /**
+     * Read whether the metadata of a view says the view contains tokens, and the
+     * packed tokens if it has them.
+     */
+    private static Metadata readMetadata(JsonParser parser) throws IOException {
+        Metadata metadata = new Metadata();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("contains".equals(name) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if (Uri.TOKEN.equals(parser.getCurrentName()))
+                        metadata.hasTokens = true;
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            } else if (PackedTokens.METADATA.equals(name) && value == JsonToken.VALUE_STRING) {
+                metadata.packedTokens = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return metadata;
+    }
+
+    /** The parts of the metadata of a view the reader looks at. */
+    private static final class Metadata {
+        boolean hasTokens;
+        String packedTokens;
+    }
+
+    /**
+     * Parse the start and end offsets of all annotations in the array that begins
+     * at the given character offset of the input. Returns an empty array if the
+     * token view had no annotations.
+     */
+    private static int[] readOffsets(String json, int arrayStart) throws IOException {
+        int[] offsets = new int[64];
+        int size = 0;
+        if (arrayStart >= json.length())
+            return new int[0];
+        Reader reader = new StringReader(json);
+        reader.skip(arrayStart);
+        try (JsonParser parser = FACTORY.createParser(reader)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long start = -1;
+                long end = -1;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("start".equals(name))
+                        start = parser.getLongValue();
+                    else if ("end".equals(name))
+                        end = parser.getLongValue();
+                    else
+                        parser.skipChildren();
+                }
+                if (start < 0 || end < 0)
+                    throw new IOException("Token annotation without start or end offset");
+                if (size + 2 > offsets.length)
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                offsets[size++] = Math.toIntExact(start);
+                offsets[size++] = Math.toIntExact(end);
+            }
+        }
+        return Arrays.copyOf(offsets, size);
+    }
+
+    /**
+     * Return the raw JSON of the value the parser is positioned on and move the
+     * parser to the end of that value.
+     */
+    private static Raw raw(JsonParser parser, String json) throws IOException {
+        int start = offset(parser.getTokenLocation().getCharOffset());
+        if (parser.getCurrentToken().isStructStart())
+            parser.skipChildren();
+        else
+            parser.getText();
+        int end = offset(parser.getCurrentLocation().getCharOffset());
+        return new Raw(json, start, end);
+    }
+
+    private static int offset(long charOffset) throws IOException {
+        if (charOffset < 0)
+            throw new IOException("Parser does not report character offsets");
+        return Math.toIntExact(charOffset);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected)
+            throw new IOException(String.format(
+                    "Expected %s but found %s at %s", expected, actual, parser.getTokenLocation()));
+    }
+}
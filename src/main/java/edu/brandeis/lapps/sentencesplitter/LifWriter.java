@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import edu.brandeis.lapps.sentencesplitter.LifDocument.Raw;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+/**
+ * Writes a {@link LifDocument} back out as a LIF container, followed by the
+ * views added by the splitter.
+ *
+ * The raw views of the input are copied into the output as they are, straight
+ * from the input string to the writer. New views
+ * are written annotation by annotation with {@link #startView}, {@link #annotation}
+ * and {@link #endView}, between {@link #startDocument} and {@link #endDocument}.
+ */
+final class LifWriter implements Closeable {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final String CONTEXT = "http://vocab.lappsgrid.org/context-1.0.0.jsonld";
+
+    private final JsonGenerator generator;
+    private final Scratch scratch;
+
+    LifWriter(Writer out, boolean pretty, Scratch scratch) throws IOException {
+        this.scratch = scratch;
+        // the writer belongs to the caller, closing this must not close it
+        this.generator = FACTORY.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (pretty)
+            this.generator.useDefaultPrettyPrinter();
+    }
+
+    /**
+     * Write everything up to and including the views of the input document.
+     */
+    void startDocument(LifDocument doc) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("discriminator", Uri.LIF);
+        generator.writeObjectFieldStart("payload");
+        if (!doc.members.containsKey("@context"))
+            generator.writeStringField("@context", CONTEXT);
+        if (!doc.members.containsKey("metadata")) {
+            generator.writeObjectFieldStart("metadata");
+            generator.writeEndObject();
+        }
+        for (Map.Entry<String, Raw> member : doc.members.entrySet()) {
+            generator.writeFieldName(member.getKey());
+            writeRaw(member.getValue());
+        }
+        generator.writeObjectFieldStart("text");
+        generator.writeStringField("@value", doc.text);
+        if (doc.language != null)
+            generator.writeStringField("@language", doc.language);
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("views");
+        for (Raw view : doc.views)
+            writeRaw(view);
+    }
+
+    private void writeRaw(Raw json) throws IOException {
+        generator.writeRawValue(json.source, json.start, json.end - json.start);
+    }
+
+    /**
+     * Start a new view that contains annotations of the given type.
+     */
+    void startView(String id, String type, String producer, String tagType) throws IOException {
+        startView(id, type, producer, tagType, null);
+    }
+
+    /**
+     * Start a new view that contains annotations of the given type, with packed
+     * tokens in its metadata if packedTokens is not null. A view with packed
+     * tokens should get no annotations.
+     */
+    void startView(String id, String type, String producer, String tagType, String packedTokens)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", id);
+        generator.writeObjectFieldStart("metadata");
+        generator.writeObjectFieldStart("contains");
+        generator.writeObjectFieldStart(type);
+        generator.writeStringField("producer", producer);
+        generator.writeStringField("type", tagType);
+        generator.writeEndObject();
+        generator.writeEndObject();
+        if (packedTokens != null)
+            generator.writeStringField(PackedTokens.METADATA, packedTokens);
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("annotations");
+    }
+
+    /**
+     * Write an annotation to the current view, with the id prefix followed by
+     * the index, and with a feature whose value is the text between start and
+     * end. The feature is left out if text is null. The id and the value are
+     * formatted in the scratch buffer, not in new strings.
+     */
+    void annotation(String prefix, int index, String type, int start, int end, String feature, String text)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("id");
+        writeId(prefix, index);
+        generator.writeNumberField("start", start);
+        generator.writeNumberField("end", end);
+        generator.writeStringField("@type", type);
+        if (text != null) {
+            generator.writeObjectFieldStart("features");
+            generator.writeFieldName(feature);
+            char[] chars = scratch.chars(end - start);
+            text.getChars(start, end, chars, 0);
+            generator.writeString(chars, 0, end - start);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeId(String prefix, int index) throws IOException {
+        int digits = 1;
+        for (int rest = index / 10; rest > 0; rest /= 10)
+            digits++;
+        int length = prefix.length() + digits;
+        char[] chars = scratch.chars(length);
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = length - 1, rest = index; i >= prefix.length(); i--, rest /= 10)
+            chars[i] = (char) ('0' + rest % 10);
+        generator.writeString(chars, 0, length);
+    }
+
+    void endView() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    void endDocument() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
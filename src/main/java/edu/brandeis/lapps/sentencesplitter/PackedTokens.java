@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import edu.brandeis.nlp.tokenizer.TokenFile;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Token offsets packed into a single string, as an alternative to a token view
+ * with an annotation per token.
+ *
+ * A packed token view has no annotations and the offsets of its tokens as the
+ * "packedTokens" member of its metadata. For each token, in text order, the
+ * distance from the end of the previous token (or from 0) to the begin of the
+ * token and the length of the token are written as unsigned LEB128 varints,
+ * the records of a binary token file made by {@link TokenFile#encode}, and the
+ * bytes are base64 encoded.
+ * Most tokens take two bytes, under three characters, where an annotation
+ * takes a hundred or more.
+ */
+final class PackedTokens {
+
+    /** The metadata member of a view that holds its packed tokens. */
+    static final String METADATA = "packedTokens";
+
+    private PackedTokens() { }
+
+    /**
+     * Pack token offsets.
+     *
+     * @param offsets begin and end offsets of the tokens, as consecutive pairs in text order
+     * @return the packed offsets
+     * @throws IllegalArgumentException if the tokens overlap or are out of order
+     */
+    static String encode(int[] offsets) {
+        return Base64.getEncoder().encodeToString(TokenFile.encode(offsets));
+    }
+
+    /**
+     * Unpack token offsets.
+     *
+     * @param packed the packed offsets
+     * @return begin and end offsets of the tokens, as consecutive pairs
+     * @throws IOException if the string is not packed offsets
+     */
+    static int[] decode(String packed) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(packed);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Packed tokens are not base64", e);
+        }
+        return TokenFile.decode(bytes);
+    }
+}
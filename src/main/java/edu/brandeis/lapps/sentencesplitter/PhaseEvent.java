@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one phase of processing a document: parsing the input,
+ * splitting the text or writing the result. Finishing a phase also records
+ * its duration in {@link SplitterMetrics}, whether or not JFR is recording.
+ * The event is only created when JFR records it, so a phase costs no
+ * allocation otherwise.
+ */
+@Name("edu.brandeis.lapps.sentencesplitter.Phase")
+@Label("Splitter Phase")
+@Category({"LAPPS", "Splitter"})
+@Description("A phase of processing a document by the splitter service")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Size")
+    @Description("Number of characters the phase worked on")
+    long size;
+
+    private static final EventType TYPE = EventType.getEventType(PhaseEvent.class);
+
+    /**
+     * Start the event of a phase, returns null if JFR does not record it.
+     */
+    static PhaseEvent start(long size) {
+        if (!TYPE.isEnabled())
+            return null;
+        PhaseEvent event = new PhaseEvent();
+        event.size = size;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Record the duration of a phase that started at the given System.nanoTime()
+     * and commit its event, which may be null.
+     */
+    static void finish(PhaseEvent event, SplitterMetrics.Phase kind, long start) {
+        SplitterMetrics.get().phase(kind, System.nanoTime() - start);
+        if (event != null && event.shouldCommit()) {
+            event.phase = kind.label;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of split results, for documents that are submitted more than
+ * once.
+ *
+ * Entries are keyed by a SHA-256 digest of the text and of the token offsets of
+ * the input, if it has any, and hold the sentence offsets and, for text that was
+ * tokenized by the service, the token offsets. Neither the text nor the rest of
+ * the document is kept. The least recently used entries are evicted when
+ * there are more than maxEntries entries or when the entries take more than
+ * maxBytes of heap.
+ */
+final class ResultCache {
+
+    private static final int CHUNK = 4096;
+
+    /** Heap taken by an entry besides its offsets: the key, digest and map entry. */
+    private static final long ENTRY_BYTES = 128;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, SplitOffsets> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    ResultCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1)
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Compute the key of a text and its token offsets. This is done outside of
+     * any lock, since it reads the whole text.
+     */
+    static Key key(String text, int[] tokenOffsets) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK * 2);
+        CharBuffer chars = buffer.asCharBuffer();
+        for (int i = 0; i < text.length(); i += CHUNK) {
+            int end = Math.min(text.length(), i + CHUNK);
+            chars.clear();
+            chars.put(text, i, end);
+            digest.update(buffer.array(), 0, (end - i) * 2);
+        }
+        // tell apart text without tokens from text with an empty token list
+        digest.update((byte) (tokenOffsets == null ? 0 : 1));
+        if (tokenOffsets != null) {
+            IntBuffer ints = buffer.asIntBuffer();
+            for (int i = 0; i < tokenOffsets.length; i += CHUNK / 2) {
+                int end = Math.min(tokenOffsets.length, i + CHUNK / 2);
+                ints.clear();
+                ints.put(tokenOffsets, i, end - i);
+                digest.update(buffer.array(), 0, (end - i) * 4);
+            }
+        }
+        return new Key(digest.digest());
+    }
+
+    synchronized SplitOffsets get(Key key) {
+        SplitOffsets offsets = entries.get(key);
+        if (offsets == null)
+            SplitterMetrics.get().cacheMiss();
+        else
+            SplitterMetrics.get().cacheHit();
+        return offsets;
+    }
+
+    synchronized void put(Key key, SplitOffsets offsets) {
+        long size = ENTRY_BYTES + offsets.bytes();
+        if (size > maxBytes)
+            return;
+        SplitOffsets previous = entries.put(key, offsets);
+        if (previous != null)
+            bytes -= ENTRY_BYTES + previous.bytes();
+        bytes += size;
+        Iterator<Map.Entry<Key, SplitOffsets>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= ENTRY_BYTES + eldest.next().getValue().bytes();
+            eldest.remove();
+            SplitterMetrics.get().cacheEviction();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    static final class Key {
+
+        private final byte[] digest;
+        private final int hash;
+
+        Key(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(digest, ((Key) other).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import edu.brandeis.nlp.tokenizer.SplitScratch;
+
+/**
+ * Buffers reused from one document to the next: those of the splitting engine
+ * and a character buffer the writer formats ids and covered text in. A warm
+ * scratch lets the service split and write a document without allocating
+ * anything but the result.
+ *
+ * The service keeps a pool of them rather than one per thread, requests of the
+ * standalone server each run on a new virtual thread.
+ */
+final class Scratch {
+
+    /** Characters above which the buffer is not worth keeping. */
+    private static final int MAX_RETAINED_CHARS = 1 << 20;
+
+    final SplitScratch split = new SplitScratch();
+
+    private char[] chars = new char[256];
+
+    /**
+     * Return the character buffer, with room for at least length characters.
+     */
+    char[] chars(int length) {
+        if (length > chars.length)
+            chars = new char[Math.max(length, chars.length * 2)];
+        return chars;
+    }
+
+    boolean isOversized() {
+        return split.isOversized() || chars.length > MAX_RETAINED_CHARS;
+    }
+}
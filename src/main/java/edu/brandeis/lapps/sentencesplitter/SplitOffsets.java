@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import edu.brandeis.nlp.tokenizer.SplitResult;
+
+/**
+ * The annotations the splitter adds to a document, as begin and end offsets in
+ * consecutive pairs: the sentences, and the tokens if the splitter tokenized
+ * the text itself. This is what {@link ResultCache} keeps for a document, it
+ * does not refer to the text.
+ */
+final class SplitOffsets {
+
+    /** Offsets of the tokens to write, null if the input had tokens. */
+    final int[] tokens;
+
+    final int[] sentences;
+
+    SplitOffsets(int[] tokens, int[] sentences) {
+        this.tokens = tokens;
+        this.sentences = sentences;
+    }
+
+    static SplitOffsets of(SplitResult result, boolean withTokens) {
+        int[] tokens = null;
+        if (withTokens) {
+            tokens = new int[result.tokenCount() * 2];
+            for (int i = 0; i < result.tokenCount(); i++) {
+                tokens[2 * i] = result.tokenBegin(i);
+                tokens[2 * i + 1] = result.tokenEnd(i);
+            }
+        }
+        return new SplitOffsets(tokens, result.sentenceOffsets());
+    }
+
+    int sentenceCount() {
+        return sentences.length / 2;
+    }
+
+    /**
+     * Approximate number of bytes of heap taken by this object.
+     */
+    long bytes() {
+        return 16 + 2 * 8 + array(sentences) + (tokens == null ? 0 : array(tokens));
+    }
+
+    private static long array(int[] array) {
+        return 16 + 4L * array.length;
+    }
+}
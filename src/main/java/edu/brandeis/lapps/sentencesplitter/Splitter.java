@@ -16,9 +16,9 @@
 package edu.brandeis.lapps.sentencesplitter;
 
 
-import edu.brandeis.nlp.tokenizer.Sentence;
-import edu.brandeis.nlp.tokenizer.Token;
-import edu.brandeis.nlp.tokenizer.TokenizedText;
+import edu.brandeis.nlp.tokenizer.SentenceSplitter;
+import edu.brandeis.nlp.tokenizer.SplitScratch;
+import edu.brandeis.nlp.tokenizer.SplitResult;
 import org.lappsgrid.api.ProcessingService;
 
 import static org.lappsgrid.discriminator.Discriminators.Uri;
@@ -26,17 +26,23 @@ import static org.lappsgrid.discriminator.Discriminators.Uri;
 import org.lappsgrid.metadata.IOSpecification;
 import org.lappsgrid.metadata.ServiceMetadata;
 import org.lappsgrid.serialization.Data;
-import org.lappsgrid.serialization.DataContainer;
-import org.lappsgrid.serialization.Serializer;
-import org.lappsgrid.serialization.lif.Annotation;
-import org.lappsgrid.serialization.lif.Container;
-import org.lappsgrid.serialization.lif.View;
 
-import java.util.List;
-import java.util.Map;
-
-import edu.brandeis.nlp.tokenizer.Tokenizer;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -49,12 +55,79 @@ public class Splitter implements ProcessingService
      */
     private String metadata;
 
+    /**
+     * The splitting engine, it is stateless and shared by all request threads.
+     */
+    private final SentenceSplitter splitter = new SentenceSplitter();
+
+    private boolean streaming = true;
+
+    private boolean tokenizeFallback = false;
+
+    private int batchParallelism = Runtime.getRuntime().availableProcessors();
+
+    private ForkJoinPool batchPool;
+
+    private int asyncThreads = Runtime.getRuntime().availableProcessors();
+
+    private ExecutorService asyncPool;
+
+    private boolean compactOutput = false;
+
+    private boolean leanOutput = false;
+
+    private boolean packedTokens = false;
+
+    private int parallelThreshold = 1 << 22;
+
+    private int cacheSize = 0;
+
+    private long cacheMemory = 64L << 20;
+
+    private volatile ResultCache cache;
+
+    private int maxInFlightDocuments = 0;
+
+    private long maxInFlightCharacters = 0;
+
+    private int admissionQueue = 100;
+
+    private long admissionTimeout = 1000;
+
+    /**
+     * Counts all documents in flight, also without limits, so that the limits
+     * hold for the documents already in flight when they are set.
+     */
+    private final AdmissionControl admission = new AdmissionControl(
+            maxInFlightDocuments, maxInFlightCharacters, admissionQueue, admissionTimeout);
+
+    static final String OVERLOADED = "Service overloaded, try again later";
+
+    /** Error of a document whose asynchronous execution was cancelled, never returned to a caller. */
+    static final String CANCELLED = "Cancelled";
+
+    /** Output profile with the covered text as a feature of every annotation. */
+    static final String FULL = "full";
+
+    /** Output profile with only the offsets of the annotations. */
+    static final String LEAN = "lean";
+
+    /** Maximum number of scratch buffers kept for reuse. */
+    private static final int SCRATCH_POOL = 64;
+
+    private final ArrayBlockingQueue<Scratch> scratches = new ArrayBlockingQueue<>(SCRATCH_POOL);
+
 
     public Splitter() {
+        this.metadata = buildMetadata();
+    }
 
+    private String buildMetadata() {
         ServiceMetadata meta = new ServiceMetadata();
         meta.setName(this.getClass().getName());
-        meta.setDescription("brandeis splitter takes tokenized input and detects sentences.");
+        meta.setDescription(tokenizeFallback
+                ? "brandeis splitter detects sentences, it tokenizes the text itself if the input has no tokens."
+                : "brandeis splitter takes tokenized input and detects sentences.");
         meta.setVersion(getVersion());
         meta.setVendor("http://www.cs.brandeis.edu/");
         meta.setLicense(Uri.APACHE2);
@@ -63,18 +136,23 @@ public class Splitter implements ProcessingService
         requires.setEncoding("UTF-8");
         requires.addLanguage("en");
         requires.addFormat(Uri.LAPPS);
-        requires.addAnnotation(Uri.TOKEN);
+        if (tokenizeFallback)
+            requires.addFormat(Uri.TEXT);
+        else
+            requires.addAnnotation(Uri.TOKEN);
 
         IOSpecification produces = new IOSpecification();
         produces.setEncoding("UTF-8");
         produces.addLanguage("en");
         produces.addFormat(Uri.LAPPS);
+        if (tokenizeFallback)
+            produces.addAnnotation(Uri.TOKEN);
         produces.addAnnotation(Uri.SENTENCE);
 
         meta.setRequires(requires);
         meta.setProduces(produces);
         Data<ServiceMetadata> data = new Data<> (Uri.META, meta);
-        this.metadata = data.asPrettyJson();
+        return data.asPrettyJson();
     }
 
     /**
@@ -85,80 +163,671 @@ public class Splitter implements ProcessingService
         return metadata;
     }
 
+    /**
+     * Use the streaming LIF reader, which only decodes the text and the token view
+     * and passes all other views through as raw JSON. When false, the input is
+     * parsed into a LAPPS Container first. Can be set as a bean property in the
+     * service configuration.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Tokenize the text in-process when the input has no token view, and add
+     * a token view as well as the sentence view. When false, input without a
+     * token view is rejected, as it always was. Defaults to false. Can be set as
+     * a bean property in the service configuration, the metadata follows the
+     * setting.
+     */
+    public void setTokenizeFallback(boolean tokenizeFallback) {
+        this.tokenizeFallback = tokenizeFallback;
+        this.metadata = buildMetadata();
+    }
+
+    /**
+     * Number of documents executeBatch() splits in parallel, and number of
+     * threads that split a large document. Defaults to the number of
+     * processors. Can be set as a bean property in the service configuration.
+     */
+    public synchronized void setBatchParallelism(int batchParallelism) {
+        if (batchParallelism < 1)
+            throw new IllegalArgumentException("Batch parallelism must be at least 1");
+        this.batchParallelism = batchParallelism;
+        if (batchPool != null) {
+            batchPool.shutdown();
+            batchPool = null;
+        }
+    }
+
+    /**
+     * Number of threads that run executeAsync(). Defaults to the number of
+     * processors. Can be set as a bean property in the service configuration.
+     */
+    public synchronized void setAsyncThreads(int asyncThreads) {
+        if (asyncThreads < 1)
+            throw new IllegalArgumentException("Async threads must be at least 1");
+        this.asyncThreads = asyncThreads;
+        if (asyncPool != null) {
+            asyncPool.shutdown();
+            asyncPool = null;
+        }
+    }
+
+    /**
+     * Split the text of a document over several threads when it has at least
+     * this many characters. The result is the same as when it is split by one
+     * thread. Defaults to 4M characters, 0 turns parallel splitting off. Can be
+     * set as a bean property in the service configuration.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("Parallel threshold must not be negative: " + parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Keep the sentences of up to this many documents, so that a document that
+     * is submitted again is not split again. Defaults to 0, which turns the
+     * cache off. Can be set as a bean property in the service configuration.
+     */
+    public synchronized void setCacheSize(int cacheSize) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        this.cacheSize = cacheSize;
+        this.cache = cacheSize == 0 ? null : new ResultCache(cacheSize, cacheMemory);
+    }
+
+    /**
+     * The number of bytes of heap the cache may use. Defaults to 64 MB. Can be
+     * set as a bean property in the service configuration.
+     */
+    public synchronized void setCacheMemory(long cacheMemory) {
+        if (cacheMemory < 1)
+            throw new IllegalArgumentException("Cache memory must be positive: " + cacheMemory);
+        this.cacheMemory = cacheMemory;
+        this.cache = cacheSize == 0 ? null : new ResultCache(cacheSize, cacheMemory);
+    }
+
+    /**
+     * The number of documents execute() processes at the same time, further
+     * documents wait in the admission queue. Defaults to 0, no limit. Can be set
+     * as a bean property in the service configuration.
+     */
+    public synchronized void setMaxInFlightDocuments(int maxInFlightDocuments) {
+        if (maxInFlightDocuments < 0)
+            throw new IllegalArgumentException("Maximum documents must not be negative: " + maxInFlightDocuments);
+        this.maxInFlightDocuments = maxInFlightDocuments;
+        updateAdmission();
+    }
+
+    /**
+     * The number of characters of input execute() processes at the same time,
+     * further documents wait in the admission queue. A larger document is let in
+     * when it is the only one. Defaults to 0, no limit. Can be set as a bean
+     * property in the service configuration.
+     */
+    public synchronized void setMaxInFlightCharacters(long maxInFlightCharacters) {
+        if (maxInFlightCharacters < 0)
+            throw new IllegalArgumentException("Maximum characters must not be negative: " + maxInFlightCharacters);
+        this.maxInFlightCharacters = maxInFlightCharacters;
+        updateAdmission();
+    }
+
+    /**
+     * The number of documents that may wait for the in-flight limits, when the
+     * queue is full a document is rejected with an overloaded error at once.
+     * Defaults to 100. Can be set as a bean property in the service
+     * configuration.
+     */
+    public synchronized void setAdmissionQueue(int admissionQueue) {
+        if (admissionQueue < 0)
+            throw new IllegalArgumentException("Admission queue must not be negative: " + admissionQueue);
+        this.admissionQueue = admissionQueue;
+        updateAdmission();
+    }
+
+    /**
+     * The number of milliseconds a document waits in the admission queue
+     * before it is rejected with an overloaded error. Defaults to 1000. Can be
+     * set as a bean property in the service configuration.
+     */
+    public synchronized void setAdmissionTimeout(long admissionTimeout) {
+        if (admissionTimeout < 0)
+            throw new IllegalArgumentException("Admission timeout must not be negative: " + admissionTimeout);
+        this.admissionTimeout = admissionTimeout;
+        updateAdmission();
+    }
+
+    private void updateAdmission() {
+        admission.configure(maxInFlightDocuments, maxInFlightCharacters, admissionQueue, admissionTimeout);
+    }
+
+    /**
+     * Write results without indentation. Defaults to false. Can be set as a
+     * bean property in the service configuration.
+     */
+    public void setCompactOutput(boolean compactOutput) {
+        this.compactOutput = compactOutput;
+    }
+
+    /**
+     * Set the output profile used when a request does not name one. With "full",
+     * the default, sentences have the sentence text as a "text" feature and the
+     * tokens the splitter adds have a "word" feature. With "lean" the annotations
+     * only have their offsets, the text is in the payload once and the result is
+     * about half the size. A request picks a profile with a "profile" entry in
+     * the parameters of its LIF document. Can be set as a bean property in the
+     * service configuration.
+     */
+    public void setOutputProfile(String outputProfile) {
+        Boolean lean = isLean(outputProfile);
+        if (lean == null)
+            throw new IllegalArgumentException("Unknown output profile: " + outputProfile);
+        this.leanOutput = lean;
+    }
+
+    /**
+     * Returns true for the lean profile, false for the full profile and null if
+     * the name is not a profile.
+     */
+    private static Boolean isLean(String profile) {
+        if (FULL.equals(profile))
+            return false;
+        if (LEAN.equals(profile))
+            return true;
+        return null;
+    }
+
+    /**
+     * Write the tokens the splitter adds as a packed token view, with the offsets
+     * of all tokens in one string in the view's metadata instead of an
+     * annotation per token (see {@link PackedTokens}). Only for consumers that
+     * read packed tokens, like the splitter itself. Token views with packed
+     * tokens are read whatever this is set to. Defaults to false. Can be set as
+     * a bean property in the service configuration.
+     */
+    public void setPackedTokens(boolean packedTokens) {
+        this.packedTokens = packedTokens;
+    }
+
     @Override
     public String execute(String input) {
-        Data data;
+        String refused = admit(input);
+        if (refused != null)
+            return error(refused, !compactOutput);
+        try {
+            return processSafely(input, !compactOutput);
+        } finally {
+            admission.release(input.length());
+        }
+    }
+
+    /**
+     * Split a document and stream the result to a writer, for callers that can
+     * write straight to a response. The views of the input are copied to the
+     * output without being decoded, so apart from the text and the token offsets
+     * nothing of the document is held in memory besides the input itself.
+     *
+     * A document that fails gets an error document, as with execute(String). If
+     * it fails after part of the result was written, which can only happen
+     * while the result is written, an IOException is thrown instead, so that the
+     * caller does not pass the partial result on as a whole one.
+     *
+     * @param input a LIF document
+     * @param out where the result or error is written, it is flushed but not closed
+     * @throws IOException if writing to out fails, or if the document fails
+     * after part of the result was written
+     */
+    public void execute(String input, Writer out) throws IOException {
+        String refused = admit(input);
+        if (refused != null) {
+            out.write(error(refused, !compactOutput));
+        } else {
+            try {
+                processSafely(input, !compactOutput, out);
+            } finally {
+                admission.release(input.length());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Split a document on the service's own pool of asyncThreads threads, so
+     * the caller does not wait for it. The result is the same as that of
+     * execute(String), errors included. Documents wait for a thread in order,
+     * limits on the documents in flight apply once they have one.
+     *
+     * Cancelling the returned future takes a document off the queue of the
+     * pool or of admission control, and stops a document that is being
+     * processed when it is checked next: before parsing, after parsing and
+     * after splitting, and while a text of at least parallelThreshold
+     * characters is split on the pool. Any other step that has started, like
+     * parsing a large input, runs to its end first. Cancelled documents are counted apart from failed
+     * ones in SplitterMetrics.
+     *
+     * @param input a LIF document
+     * @return the result, completed on a thread of the pool
+     */
+    public CompletionStage<String> executeAsync(String input) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<?> task = asyncPool().submit(() -> {
+            if (result.isDone())
+                return;
+            try {
+                result.complete(execute(input));
+            } catch (Throwable e) {
+                // the future of the task is dropped, without this the result
+                // would never complete
+                result.completeExceptionally(e);
+            }
+        });
+        // the task only runs until the result is done, whoever completed it
+        result.whenComplete((output, error) -> {
+            if (error != null)
+                task.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Split a document on the service's own pool of threads, with a deadline.
+     * When the result is not there within the timeout, counted from the call,
+     * the future completes exceptionally with a TimeoutException and the
+     * document is cancelled.
+     *
+     * @param input a LIF document
+     * @param timeout how long to wait for the result at most
+     * @param unit the unit of the timeout
+     * @return the result, or a TimeoutException after the deadline
+     */
+    public CompletionStage<String> executeAsync(String input, long timeout, TimeUnit unit) {
+        return executeAsync(input).toCompletableFuture().orTimeout(timeout, unit);
+    }
+
+    /**
+     * Split a batch of documents. The input is either a JSON array of LIF
+     * documents or JSON Lines with one LIF document per line, the output has the
+     * same form with the results in input order. Documents are processed in
+     * parallel on a pool of batchParallelism threads. A document that fails gets
+     * an error object in its place, the other documents are not affected. The
+     * whole batch counts as one document for the in-flight limits, when it is
+     * shed a single overloaded error is returned.
+     *
+     * @param input a JSON array or JSON Lines of LIF documents
+     * @return a JSON array or JSON Lines of results
+     */
+    public String executeBatch(String input) {
+        String refused = admit(input);
+        if (refused != null)
+            return error(refused, !compactOutput);
+        try {
+            return processBatch(input);
+        } finally {
+            admission.release(input.length());
+        }
+    }
+
+    private String processBatch(String input) {
+        boolean array = input.trim().startsWith("[");
+        List<String> documents;
+        if (array) {
+            try {
+                documents = LifReader.readArray(input);
+            } catch (Exception e) {
+                return error("Need a JSON array or JSON Lines of LIF documents", !compactOutput);
+            }
+        } else {
+            documents = new ArrayList<>();
+            for (String line : input.split("\\r?\\n")) {
+                if (!line.trim().isEmpty())
+                    documents.add(line);
+            }
+        }
+
+        // JSON Lines results must fit on one line, so they are not indented
+        boolean pretty = array && !compactOutput;
+        ForkJoinPool pool = batchPool();
+        List<ForkJoinTask<String>> tasks = new ArrayList<>(documents.size());
+        for (String document : documents)
+            tasks.add(pool.submit(() -> processSafely(document, pretty)));
+
+        StringBuilder out = new StringBuilder();
+        out.append(array ? "[" : "");
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i > 0)
+                out.append(array ? ",\n" : "\n");
+            String result;
+            try {
+                result = tasks.get(i).join();
+            } catch (RuntimeException | Error e) {
+                // processSafely() lets errors through, they only fail their own document
+                result = error(message(e), pretty);
+            }
+            out.append(result);
+        }
+        out.append(array ? "]" : "");
+        return out.toString();
+    }
+
+    private synchronized ForkJoinPool batchPool() {
+        if (batchPool == null)
+            batchPool = new ForkJoinPool(batchParallelism);
+        return batchPool;
+    }
+
+    private synchronized ExecutorService asyncPool() {
+        if (asyncPool == null) {
+            AtomicInteger threads = new AtomicInteger();
+            asyncPool = Executors.newFixedThreadPool(asyncThreads, runnable -> {
+                Thread thread = new Thread(runnable, "splitter-async-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return asyncPool;
+    }
+
+    /**
+     * Wait until the document may be processed. Returns null when it is
+     * admitted, and the error otherwise: overloaded when it is shed, cancelled
+     * when its wait is interrupted.
+     */
+    private String admit(String input) {
+        try {
+            return admission.acquire(input.length()) ? null : OVERLOADED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            SplitterMetrics.get().cancelled();
+            return CANCELLED;
+        }
+    }
+
+    private String processSafely(String input, boolean pretty) {
+        StringWriter out = new StringWriter();
+        try {
+            process(input, pretty, out);
+        } catch (IOException | RuntimeException e) {
+            return error(message(e), pretty);
+        }
+        return out.toString();
+    }
+
+    private void processSafely(String input, boolean pretty, Writer out) throws IOException {
+        TrackingWriter tracking = new TrackingWriter(out);
+        try {
+            process(input, pretty, tracking);
+        } catch (RuntimeException e) {
+            if (tracking.written)
+                throw new IOException("Document failed after part of the result was written", e);
+            out.write(error(message(e), pretty));
+        }
+    }
+
+    /**
+     * The message of an exception, or the name of its class if it has none.
+     */
+    private static String message(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+    }
+
+    private static String error(String message, boolean pretty) {
+        Data<String> data = new Data<>(Uri.ERROR, message);
+        return pretty ? data.asPrettyJson() : data.asJson();
+    }
+
+    private void process(String input, boolean pretty, Writer out) throws IOException {
+        DocumentEvent event = DocumentEvent.start();
+        long start = System.nanoTime();
+        String error = null;
+        boolean failed = true;
         try {
-            data = Serializer.parse(input, Data.class);
+            error = annotate(input, pretty, out, event);
+            failed = error != null;
+        } finally {
+            // a cancelled document is not a failed one, its result is dropped
+            if (error == CANCELLED)
+                SplitterMetrics.get().cancelled();
+            else
+                SplitterMetrics.get().document(System.nanoTime() - start, failed);
+            if (event != null && event.shouldCommit()) {
+                event.inputLength = input.length();
+                event.error = error;
+                event.commit();
+            }
+        }
+        if (error != null)
+            out.write(error(error, pretty));
+    }
+
+    /**
+     * Split the document and write the result. Returns an error message if the
+     * input cannot be split, in which case nothing is written. The event is null
+     * when JFR does not record it.
+     */
+    private String annotate(String input, boolean pretty, Writer out, DocumentEvent event) throws IOException {
+        Scratch scratch = scratch();
+        try {
+            return annotate(input, pretty, out, event, scratch);
+        } finally {
+            recycle(scratch);
+        }
+    }
+
+    private Scratch scratch() {
+        Scratch scratch = scratches.poll();
+        return scratch != null ? scratch : new Scratch();
+    }
+
+    private void recycle(Scratch scratch) {
+        if (!scratch.isOversized())
+            scratches.offer(scratch);
+    }
+
+    private String annotate(String input, boolean pretty, Writer out, DocumentEvent event, Scratch scratch)
+            throws IOException {
+        // executeAsync() interrupts a document that is cancelled
+        if (Thread.currentThread().isInterrupted())
+            return CANCELLED;
+        LifDocument doc;
+        long start = System.nanoTime();
+        PhaseEvent phase = PhaseEvent.start(input.length());
+        try {
+            doc = streaming ? LifReader.read(input) : LifReader.readContainer(input);
         } catch (Exception e) {
-            String errorMsg = "Need a LIF JSON input";
-            return new Data<>(Uri.ERROR, errorMsg).asPrettyJson();
+            return "Need a LIF JSON input";
+        } finally {
+            PhaseEvent.finish(phase, SplitterMetrics.Phase.PARSE, start);
         }
+        if (Thread.currentThread().isInterrupted())
+            return CANCELLED;
 
-        final String discriminator = data.getDiscriminator();
-        Container container;
+        final String discriminator = String.valueOf(doc.discriminator);
         switch (discriminator) {
             case Uri.ERROR:
                 // Return the input unchanged.
-                return input;
+                out.write(input);
+                return null;
             case Uri.JSON_LD:
             case Uri.LIF:
-                container = new Container((Map) data.getPayload());
                 break;
             case Uri.TEXT:
-                container = new Container();
-                container.setText((String) data.getPayload());
-                container.setLanguage("en");
+                doc.language = "en";
                 break;
             default:
-                String errorMsg = String.format("Unsupported discriminator: %s", discriminator);
-                return new Data<>(Uri.ERROR, errorMsg).asPrettyJson();
+                return String.format("Unsupported discriminator: %s", discriminator);
+        }
+
+        String text = doc.text;
+        if (text == null)
+            return "Need a LIF input with a text";
+        Boolean lean = doc.profile == null ? leanOutput : isLean(doc.profile);
+        if (lean == null)
+            return String.format("Unknown output profile: %s", doc.profile);
+        boolean tokenize = !doc.hasTokens();
+        if (tokenize && !tokenizeFallback)
+            return String.format("Need a view with an annotation type: %s", Uri.TOKEN);
+
+        ResultCache cache = this.cache;
+        ResultCache.Key key = null;
+        SplitOffsets offsets = null;
+        if (cache != null) {
+            key = ResultCache.key(text, doc.tokenOffsets);
+            offsets = cache.get(key);
+            if (event != null)
+                event.cached = offsets != null;
+        }
+        if (offsets == null) {
+            SplitResult result;
+            start = System.nanoTime();
+            phase = PhaseEvent.start(text.length());
+            try {
+                result = split(text, tokenize ? null : doc.tokenOffsets, scratch.split);
+            } catch (IllegalArgumentException e) {
+                return message(e);
+            } catch (CancellationException e) {
+                // interrupted while the pool splits a large text
+                return CANCELLED;
+            } finally {
+                PhaseEvent.finish(phase, SplitterMetrics.Phase.SPLIT, start);
+            }
+            offsets = SplitOffsets.of(result, tokenize);
+            if (cache != null)
+                cache.put(key, offsets);
+        }
+        int tokens = tokenize ? offsets.tokens.length / 2 : doc.tokenOffsets.length / 2;
+        SplitterMetrics.get().split(text.length(), tokens, offsets.sentenceCount(), tokenize);
+        if (event != null) {
+            event.textLength = text.length();
+            event.tokens = tokens;
+            event.sentences = offsets.sentenceCount();
+            event.tokenized = tokenize;
+        }
+        if (Thread.currentThread().isInterrupted())
+            return CANCELLED;
+
+        start = System.nanoTime();
+        phase = PhaseEvent.start(text.length());
+        try {
+            write(doc, offsets, out, pretty, lean, scratch);
+        } finally {
+            PhaseEvent.finish(phase, SplitterMetrics.Phase.SERIALIZE, start);
+        }
+        return null;
+    }
+
+    /**
+     * Split the text given its token offsets, or tokenize it when they are
+     * null. Texts of at least parallelThreshold characters are split on the
+     * batch pool, the others in the scratch buffers.
+     *
+     * @throws IllegalArgumentException if the offsets do not fit the text
+     * @throws CancellationException if the thread is interrupted while the pool
+     * splits the text
+     */
+    SplitResult split(String text, int[] tokens, SplitScratch scratch) {
+        if (parallelThreshold > 0 && text.length() >= parallelThreshold) {
+            ForkJoinPool pool = batchPool();
+            return tokens == null ? splitter.tokenize(text, pool) : splitter.split(text, tokens, pool);
         }
+        return tokens == null ? splitter.tokenize(text, scratch) : splitter.split(text, tokens, scratch);
+    }
 
-        String text = container.getText();
-        List<View> tokenViews = container.findViewsThatContain(Uri.TOKEN);
-        if (tokenViews.size() < 1) {
-            String errorMsg = String.format("Need a view with an annotation type: %s", Uri.TOKEN);
-            return new Data<>(Uri.ERROR, errorMsg).asPrettyJson();
+    /**
+     * Write the input views unchanged and add a view with the sentences,
+     * preceded by a view with the tokens if we tokenized the text ourselves.
+     * The view's metadata contains the name of the tool that produced the
+     * annotations. The output profile of the service and a scratch buffer of its
+     * pool are used, as when a document is processed.
+     */
+    void write(LifDocument doc, SplitOffsets offsets, Writer out, boolean pretty) throws IOException {
+        Scratch scratch = scratch();
+        try {
+            write(doc, offsets, out, pretty, leanOutput, scratch);
+        } finally {
+            recycle(scratch);
         }
+    }
 
-        View tokenView = tokenViews.get(tokenViews.size() - 1);
+    private void write(LifDocument doc, SplitOffsets offsets, Writer out, boolean pretty, boolean lean,
+                       Scratch scratch) throws IOException {
+        // the writer leaves out the features of annotations without text
+        String text = lean ? null : doc.text;
+        String producer = this.getClass().getName();
+        String tagType = "BrandeisSplitter-" + getVersion();
+        String[] viewIds = doc.newViewIds(offsets.tokens != null ? 2 : 1);
+        try (LifWriter writer = new LifWriter(out, pretty, scratch)) {
+            writer.startDocument(doc);
+            if (offsets.tokens != null && packedTokens) {
+                writer.startView(viewIds[0], Uri.TOKEN, producer, tagType, PackedTokens.encode(offsets.tokens));
+                writer.endView();
+            } else if (offsets.tokens != null) {
+                writer.startView(viewIds[0], Uri.TOKEN, producer, tagType);
+                int[] tokens = offsets.tokens;
+                for (int i = 0; i < tokens.length / 2; i++) {
+                    int begin = tokens[2 * i];
+                    int end = tokens[2 * i + 1];
+                    writer.annotation("tk", i, Uri.TOKEN, begin, end, "word", text);
+                }
+                writer.endView();
+            }
+            writer.startView(viewIds[viewIds.length - 1], Uri.SENTENCE, producer, tagType);
+            int[] sentences = offsets.sentences;
+            for (int i = 0; i < sentences.length / 2; i++) {
+                int begin = sentences[2 * i];
+                int end = sentences[2 * i + 1];
+                writer.annotation("s", i, Uri.SENTENCE, begin, end, "text", text);
+            }
+            writer.endView();
+            writer.endDocument();
+        }
+    }
 
-        // example code on how to run the splitter
+    String getVersion() {
+        return "1.0.0";
+    }
+
+    /**
+     * Passes everything on to a writer and remembers whether anything was
+     * written, an error document can only replace a result that was not started.
+     */
+    private static final class TrackingWriter extends Writer {
 
-        Tokenizer tokenizer = new Tokenizer();
-        TokenizedText result;
-        ArrayList<Token> tokens = new ArrayList<>();
+        private final Writer out;
+        boolean written;
 
-        View view = container.newView();
-        for (Annotation token : tokenView.getAnnotations()) {
-            int s = Math.toIntExact(token.getStart());
-            int e = Math.toIntExact(token.getEnd());
-            String tokenText = text.substring(s, e-1);
-            tokens.add(new Token(tokenText, s, e));
+        TrackingWriter(Writer out) {
+            this.out = out;
         }
-        // running the tokenizer in split mode
-        result = tokenizer.splitText(text, tokens);
 
-        int id = -1;
-        for (Sentence s : result.sentences) {
-            Annotation a = view.newAnnotation("s" + (++id), Uri.SENTENCE, s.begin, s.end);
-            a.addFeature("text", text.substring(s.begin, s.end-1));
+        @Override
+        public void write(int c) throws IOException {
+            written = true;
+            out.write(c);
         }
 
-        // Step #6: Update the view's metadata. Each view contains metadata about the
-        // annotations it contains, in particular the name of the tool that produced the
-        // annotations.
-        view.addContains(Uri.SENTENCE, this.getClass().getName(), "BrandeisSplitter-" + getVersion());
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            written |= length > 0;
+            out.write(chars, offset, length);
+        }
 
-        // Step #7: Create a DataContainer with the result.
-        data = new DataContainer(container);
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            written |= length > 0;
+            out.write(string, offset, length);
+        }
 
-        // Step #8: Serialize the data object and return the JSON.
-        return data.asPrettyJson();
-    }
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
 
-    String getVersion() {
-        return "1.0.0";
+        @Override
+        public void close() throws IOException {
+            // the writer belongs to the caller
+            out.flush();
+        }
     }
 }
\ No newline at end of file
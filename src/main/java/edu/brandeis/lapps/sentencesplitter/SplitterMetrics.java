@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters and latency histograms of the splitter service. There is one
+ * instance, shared by all Splitter instances, which registers itself with the
+ * platform MBean server when it is first used.
+ */
+public final class SplitterMetrics implements SplitterMetricsMXBean {
+
+    public static final String OBJECT_NAME = "edu.brandeis.lapps.sentencesplitter:type=SplitterMetrics";
+
+    /**
+     * The timed phases of processing a document.
+     */
+    enum Phase {
+        PARSE("parse"), SPLIT("split"), SERIALIZE("serialize");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final SplitterMetrics INSTANCE = register(new SplitterMetrics());
+
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder cancelledDocuments = new LongAdder();
+    private final LongAdder tokenizedDocuments = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final LongAdder inFlightDocuments = new LongAdder();
+    private final LongAdder inFlightCharacters = new LongAdder();
+    private final LongAdder queuedDocuments = new LongAdder();
+    private final LongAdder rejectedDocuments = new LongAdder();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+    private SplitterMetrics() {
+        for (int i = 0; i < phases.length; i++)
+            phases[i] = new LatencyHistogram();
+    }
+
+    public static SplitterMetrics get() {
+        return INSTANCE;
+    }
+
+    private static SplitterMetrics register(SplitterMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            // Already registered by another copy of the service in this JVM, or
+            // not allowed. The metrics are still collected, just not exposed.
+        }
+        return metrics;
+    }
+
+    void phase(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    void document(long nanos, boolean failed) {
+        documents.increment();
+        if (failed)
+            errors.increment();
+        total.record(nanos);
+    }
+
+    void cancelled() {
+        cancelledDocuments.increment();
+    }
+
+    void split(int characters, int tokens, int sentences, boolean tokenized) {
+        this.characters.add(characters);
+        this.tokens.add(tokens);
+        this.sentences.add(sentences);
+        if (tokenized)
+            tokenizedDocuments.increment();
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void cacheEviction() {
+        cacheEvictions.increment();
+    }
+
+    void inFlight(int documents, long characters) {
+        inFlightDocuments.add(documents);
+        inFlightCharacters.add(characters);
+    }
+
+    void queued(int documents) {
+        queuedDocuments.add(documents);
+    }
+
+    void rejected() {
+        rejectedDocuments.increment();
+    }
+
+    @Override
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getCancelledDocuments() {
+        return cancelledDocuments.sum();
+    }
+
+    @Override
+    public long getTokenizedDocuments() {
+        return tokenizedDocuments.sum();
+    }
+
+    @Override
+    public long getCharacters() {
+        return characters.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getSentences() {
+        return sentences.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+    @Override
+    public long getInFlightDocuments() {
+        return inFlightDocuments.sum();
+    }
+
+    @Override
+    public long getInFlightCharacters() {
+        return inFlightCharacters.sum();
+    }
+
+    @Override
+    public long getQueuedDocuments() {
+        return queuedDocuments.sum();
+    }
+
+    @Override
+    public long getRejectedDocuments() {
+        return rejectedDocuments.sum();
+    }
+
+    @Override
+    public LatencySummary getTotalLatency() {
+        return total.summary();
+    }
+
+    @Override
+    public LatencySummary getParseLatency() {
+        return phases[Phase.PARSE.ordinal()].summary();
+    }
+
+    @Override
+    public LatencySummary getSplitLatency() {
+        return phases[Phase.SPLIT.ordinal()].summary();
+    }
+
+    @Override
+    public LatencySummary getSerializeLatency() {
+        return phases[Phase.SERIALIZE.ordinal()].summary();
+    }
+
+    @Override
+    public void reset() {
+        documents.reset();
+        errors.reset();
+        cancelledDocuments.reset();
+        tokenizedDocuments.reset();
+        characters.reset();
+        tokens.reset();
+        sentences.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        cacheEvictions.reset();
+        rejectedDocuments.reset();
+        total.reset();
+        for (LatencyHistogram phase : phases)
+            phase.reset();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+/**
+ * Counters and latencies of the splitter service, registered with the platform
+ * MBean server under {@link SplitterMetrics#OBJECT_NAME}. Latencies are in
+ * microseconds and cover all documents since the start or the last reset.
+ */
+public interface SplitterMetricsMXBean {
+
+    /** Number of documents processed, including the ones that failed but not the cancelled ones. */
+    long getDocuments();
+
+    /** Number of documents for which an error was returned. */
+    long getErrors();
+
+    /** Number of documents of executeAsync() that were cancelled while they were processed or waited for admission. */
+    long getCancelledDocuments();
+
+    /** Number of documents without tokens that were tokenized by the service. */
+    long getTokenizedDocuments();
+
+    /** Number of characters of text that were split. */
+    long getCharacters();
+
+    long getTokens();
+
+    long getSentences();
+
+    /** Number of documents whose sentences were found in the result cache. */
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /** Number of results dropped from the result cache to stay within its bounds. */
+    long getCacheEvictions();
+
+    /** Number of documents admitted and not yet done. */
+    long getInFlightDocuments();
+
+    /** Number of characters of input of the documents in flight. */
+    long getInFlightCharacters();
+
+    /** Number of documents waiting to be admitted. */
+    long getQueuedDocuments();
+
+    /**
+     * Number of documents that left the admission queue without being admitted:
+     * shed because the service was overloaded, or cancelled while waiting.
+     */
+    long getRejectedDocuments();
+
+    /** Time from receiving a document to having written the result. */
+    LatencySummary getTotalLatency();
+
+    /** Time spent reading the LIF input and the offsets of the tokens. */
+    LatencySummary getParseLatency();
+
+    /** Time spent tokenizing and splitting. */
+    LatencySummary getSplitLatency();
+
+    /** Time spent writing the result. */
+    LatencySummary getSerializeLatency();
+
+    /** Reset the counters and latencies, but not the numbers of documents in flight or waiting. */
+    void reset();
+}
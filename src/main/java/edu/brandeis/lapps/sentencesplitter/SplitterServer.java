@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 The Language Application Grid.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.brandeis.lapps.sentencesplitter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Standalone HTTP front end for the Splitter, on the HTTP server of the JDK, for
+ * running the service without a servlet container, for example as a sidecar.
+ *
+ * Every request is handled on a virtual thread of its own. The endpoints are:
+ * <ul>
+ * <li>GET /metadata, the result of Splitter.getMetadata()</li>
+ * <li>POST /execute, the result of Splitter.execute() on the request body,
+ * streamed to the response</li>
+ * <li>POST /batch, the result of Splitter.executeBatch() on the request body</li>
+ * <li>GET /health, 200 with "OK" while the server runs</li>
+ * </ul>
+ * Like the servlet deployment, errors in a document are reported as a LIF
+ * error document with status 200. A document that fails after part of its
+ * streamed result was sent has its connection dropped, so the response is
+ * not complete.
+ */
+public final class SplitterServer {
+
+    static final int DEFAULT_PORT = 8080;
+
+    private static final String JSON = "application/json; charset=UTF-8";
+
+    private final Splitter splitter;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Create a server, it does not accept requests before start() is called.
+     *
+     * @param splitter the configured splitter that handles the requests
+     * @param address where to listen, port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public SplitterServer(Splitter splitter, InetSocketAddress address) throws IOException {
+        this.splitter = splitter;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and wait at most delay seconds for the requests
+     * that are being handled.
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdownNow();
+    }
+
+    /**
+     * The address the server listens on, with the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * USAGE: java -cp ... edu.brandeis.lapps.sentencesplitter.SplitterServer
+     * [-p PORT] [-b ADDRESS] [--tokenize] [--compact] [--profile full|lean]
+     * [--packed-tokens] [--cache ENTRIES] [--max-documents N] [--max-characters N]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String host = null;
+        Splitter splitter = new Splitter();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-p":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "-b":
+                        host = args[++i];
+                        break;
+                    case "--tokenize":
+                        splitter.setTokenizeFallback(true);
+                        break;
+                    case "--compact":
+                        splitter.setCompactOutput(true);
+                        break;
+                    case "--profile":
+                        splitter.setOutputProfile(args[++i]);
+                        break;
+                    case "--packed-tokens":
+                        splitter.setPackedTokens(true);
+                        break;
+                    case "--cache":
+                        splitter.setCacheSize(Integer.parseInt(args[++i]));
+                        break;
+                    case "--max-documents":
+                        splitter.setMaxInFlightDocuments(Integer.parseInt(args[++i]));
+                        break;
+                    case "--max-characters":
+                        splitter.setMaxInFlightCharacters(Long.parseLong(args[++i]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("USAGE: SplitterServer [-p PORT] [-b ADDRESS] [--tokenize] [--compact]"
+                    + " [--profile full|lean] [--packed-tokens] [--cache ENTRIES] [--max-documents N]"
+                    + " [--max-characters N]");
+            System.exit(1);
+        }
+
+        InetSocketAddress address = host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+        SplitterServer server = new SplitterServer(splitter, address);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.out.println(String.format("Listening on %s, started in %d ms",
+                server.getAddress(), ManagementFactory.getRuntimeMXBean().getUptime()));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // the exchange is only closed when the response is complete, on an
+        // exception the server drops the connection instead, so that a client
+        // cannot take a result that was cut off for a whole one
+        String path = exchange.getRequestURI().getPath();
+        switch (path) {
+            case "/metadata":
+                if (allow(exchange, "GET"))
+                    send(exchange, 200, JSON, splitter.getMetadata());
+                break;
+            case "/health":
+                if (allow(exchange, "GET"))
+                    send(exchange, 200, "text/plain; charset=UTF-8", "OK\n");
+                break;
+            case "/execute":
+                if (allow(exchange, "POST"))
+                    execute(exchange);
+                break;
+            case "/batch":
+                if (allow(exchange, "POST"))
+                    send(exchange, 200, JSON, splitter.executeBatch(body(exchange)));
+                break;
+            default:
+                send(exchange, 404, "text/plain; charset=UTF-8", "No such endpoint: " + path + "\n");
+        }
+        exchange.close();
+    }
+
+    private void execute(HttpExchange exchange) throws IOException {
+        String input = body(exchange);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        // a length of 0 means chunked, the response is written as it is made
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        // not closed when the document fails after the response was started
+        splitter.execute(input, out);
+        out.close();
+    }
+
+    /**
+     * Return true if the request has the method, and send 405 otherwise.
+     */
+    private static boolean allow(HttpExchange exchange, String method) throws IOException {
+        if (method.equals(exchange.getRequestMethod()))
+            return true;
+        exchange.getResponseHeaders().set("Allow", method);
+        send(exchange, 405, "text/plain; charset=UTF-8", "Use " + method + "\n");
+        return false;
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
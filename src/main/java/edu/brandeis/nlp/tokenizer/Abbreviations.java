@@ -58,6 +58,13 @@ public class Abbreviations {
 	public static final Set<String> ABBREVS = new HashSet<>();
 	public static final Set<String> END_ABBREVS = new HashSet<>();
 
+	/**
+	 * ABBREVS and END_ABBREVS compiled into tries, for lookups over ranges of
+	 * a text.
+	 */
+	public static final Lexicon ABBREV_LEXICON;
+	public static final Lexicon END_ABBREV_LEXICON;
+
 	static {
 		ABBREVS.addAll(Arrays.asList(MONTHS));
 		ABBREVS.addAll(Arrays.asList(TITLES));
@@ -70,6 +77,8 @@ public class Abbreviations {
 		END_ABBREVS.addAll(Arrays.asList(STATES));
 		END_ABBREVS.addAll(Arrays.asList(GEO));
 		END_ABBREVS.addAll(Arrays.asList(MEASURES));
-		END_ABBREVS.addAll(Arrays.asList(OTHER_END)); }
+		END_ABBREVS.addAll(Arrays.asList(OTHER_END));
+		ABBREV_LEXICON = Lexicon.compile(ABBREVS);
+		END_ABBREV_LEXICON = Lexicon.compile(END_ABBREVS); }
 
 }
@@ -0,0 +1,69 @@
+package edu.brandeis.nlp.tokenizer;
+
+
+/**
+ * Precomputed character classes used by the tokenizer scanning loops.
+ *
+ * Classes for ASCII characters are looked up in a table built from
+ * Token.PUNCTUATIONS and Token.EOS. Punctuations and sentence final characters
+ * are all ASCII, for other characters only whitespace needs to be tested and
+ * that falls back on Character.isWhitespace.
+ */
+final class CharClass {
+
+	static final byte WHITESPACE = 1;
+	static final byte PUNCTUATION = 2;
+	static final byte EOS = 4;
+
+	private static final byte[] TABLE = new byte[128];
+
+	static {
+		for (char c = 0; c < 128; c++) {
+			if (Character.isWhitespace(c))
+				TABLE[c] |= WHITESPACE;
+			if (Token.PUNCTUATIONS.indexOf(c) >= 0)
+				TABLE[c] |= PUNCTUATION;
+			if (Token.EOS.indexOf(c) >= 0)
+				TABLE[c] |= EOS; }
+	}
+
+	private CharClass() { }
+
+	static boolean isWhitespace(char c)
+	{
+		return c < 128 ? (TABLE[c] & WHITESPACE) != 0 : Character.isWhitespace(c);
+	}
+
+	static boolean isPunctuation(char c)
+	{
+		return c < 128 && (TABLE[c] & PUNCTUATION) != 0;
+	}
+
+	static boolean isEOS(char c)
+	{
+		return c < 128 && (TABLE[c] & EOS) != 0;
+	}
+
+	/**
+	 * Return the offset of the first non-whitespace character in text between
+	 * from and to, or to if there is none.
+	 */
+	static int skipWhitespace(String text, int from, int to)
+	{
+		while (from < to && isWhitespace(text.charAt(from)))
+			from++;
+		return from;
+	}
+
+	/**
+	 * Return the offset of the first whitespace character in text between from
+	 * and to, or to if there is none.
+	 */
+	static int skipNonWhitespace(String text, int from, int to)
+	{
+		while (from < to && !isWhitespace(text.charAt(from)))
+			from++;
+		return from;
+	}
+
+}
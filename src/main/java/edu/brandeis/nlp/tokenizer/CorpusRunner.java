@@ -0,0 +1,271 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Tokenizes and splits a corpus of text files with a pipeline of a reader
+ * thread, a pool of worker threads and a writer.
+ *
+ * The stages are connected by bounded queues, so at most a few documents per
+ * worker are in memory at any time, however fast the disk or the workers are.
+ * A text file NAME.txt is split using the tokens in NAME.btok or NAME.tok next
+ * to it if there is such a file, and tokenized otherwise. The sentences are
+ * written to NAME.sent, a "begin end" line with character offsets per sentence.
+ * Documents are read whole, use Tokenizer.tokenizeFile(File, SentenceSink) for
+ * files that do not fit in memory.
+ */
+public final class CorpusRunner {
+
+	private static final SentenceSplitter ENGINE = new SentenceSplitter();
+
+	/** Marks the end of the documents in a queue. */
+	private static final Document END = new Document(null, null);
+
+	private final int threads;
+	private final int capacity;
+	private final Path output;
+	private PrintStream errors = System.err;
+
+	/**
+	 * @param threads number of worker threads
+	 * @param capacity capacity of each of the queues between the stages
+	 * @param output directory for the sentence files, or null to write them
+	 * next to the text files
+	 */
+	public CorpusRunner(int threads, int capacity, Path output)
+	{
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread: " + threads);
+		if (capacity < 1)
+			throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+		this.threads = threads;
+		this.capacity = capacity;
+		this.output = output;
+	}
+
+	/**
+	 * Set where failures to read, split or write a document are reported,
+	 * System.err by default.
+	 */
+	public void setErrors(PrintStream errors)
+	{
+		this.errors = errors;
+	}
+
+	/**
+	 * Process the text files and the *.txt files in the directories, searched
+	 * recursively. A document that fails is reported and counted, the others
+	 * are still processed.
+	 *
+	 * @param inputs text files and directories
+	 * @return the counts and the elapsed time
+	 * @throws IOException if an input cannot be listed
+	 * @throws InterruptedException
+	 */
+	public Report run(List<Path> inputs) throws IOException, InterruptedException
+	{
+		List<Document> documents = documents(inputs);
+		BlockingQueue<Document> read = new ArrayBlockingQueue<>(this.capacity);
+		BlockingQueue<Document> split = new ArrayBlockingQueue<>(this.capacity);
+		List<Thread> stages = new ArrayList<>();
+		stages.add(new Thread(() -> read(documents, read), "corpus-reader"));
+		for (int i = 0; i < this.threads; i++)
+			stages.add(new Thread(() -> split(read, split), "corpus-worker-" + i));
+		Report report = new Report();
+		long start = System.nanoTime();
+		try {
+			for (Thread stage : stages) {
+				stage.setDaemon(true);
+				stage.start(); }
+			write(split, report); }
+		finally {
+			// only needed when the writer is interrupted, the other stages are
+			// done otherwise
+			for (Thread stage : stages)
+				stage.interrupt(); }
+		report.nanos = System.nanoTime() - start;
+		return report;
+	}
+
+	private void read(List<Document> documents, BlockingQueue<Document> queue)
+	{
+		try {
+			for (Document document : documents) {
+				try {
+					byte[] bytes = Files.readAllBytes(document.text);
+					document.bytes = bytes.length;
+					document.content = new String(bytes, StandardCharsets.UTF_8);
+					if (document.tokens != null)
+						document.offsets = TokenFile.read(document.tokens); }
+				catch (Throwable e) {
+					// any error, so that the reader always gets to the end
+					// markers the workers wait for
+					document.content = null;
+					document.error = e; }
+				queue.put(document); }
+			for (int i = 0; i < this.threads; i++)
+				queue.put(END); }
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); }
+	}
+
+	private static void split(BlockingQueue<Document> in, BlockingQueue<Document> out)
+	{
+		try {
+			Document document;
+			while ((document = in.take()) != END) {
+				if (document.error == null) {
+					try {
+						document.result = document.offsets == null
+								? ENGINE.tokenize(document.content)
+								: ENGINE.split(document.content, document.offsets); }
+					catch (Throwable e) {
+						// a worker that died would never put its end marker, and
+						// the writer would wait for it forever
+						document.error = e; } }
+				document.content = null;
+				document.offsets = null;
+				out.put(document); }
+			out.put(END); }
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); }
+	}
+
+	private void write(BlockingQueue<Document> queue, Report report) throws InterruptedException
+	{
+		int running = this.threads;
+		while (running > 0) {
+			Document document = queue.take();
+			if (document == END) {
+				running--;
+				continue; }
+			if (document.error == null) {
+				try {
+					write(document); }
+				catch (IOException e) {
+					document.error = e; } }
+			if (document.error != null) {
+				report.failed++;
+				this.errors.println(String.format("%s: %s", document.text, document.error)); }
+			else {
+				report.documents++;
+				report.bytes += document.bytes;
+				report.tokens += document.result.tokenCount();
+				report.sentences += document.result.sentenceCount(); }
+			// the document list of the reader still refers to the document
+			document.result = null; }
+	}
+
+	private void write(Document document) throws IOException
+	{
+		Path path = document.text.resolveSibling(replaceExtension(document.text, ".sent"));
+		if (this.output != null) {
+			path = this.output.resolve(document.root.relativize(path).toString());
+			Files.createDirectories(path.getParent()); }
+		SplitResult result = document.result;
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < result.sentenceCount(); i++) {
+				writer.write(Integer.toString(result.sentenceBegin(i)));
+				writer.write(' ');
+				writer.write(Integer.toString(result.sentenceEnd(i)));
+				writer.write('\n'); } }
+	}
+
+	/**
+	 * List the documents to process, with the token file of each if it has one.
+	 */
+	static List<Document> documents(List<Path> inputs) throws IOException
+	{
+		List<Document> documents = new ArrayList<>();
+		for (Path input : inputs) {
+			input = input.toAbsolutePath().normalize();
+			if (!Files.isDirectory(input)) {
+				if (!Files.isRegularFile(input))
+					throw new IOException("No such file or directory: " + input);
+				documents.add(new Document(input.getParent(), input));
+				continue; }
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(input)) {
+				files = walk.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".txt"))
+						.sorted()
+						.collect(Collectors.toList()); }
+			for (Path file : files)
+				documents.add(new Document(input, file)); }
+		for (Document document : documents) {
+			for (String extension : new String[] { ".btok", ".tok" }) {
+				Path tokens = document.text.resolveSibling(replaceExtension(document.text, extension));
+				if (Files.isRegularFile(tokens)) {
+					document.tokens = tokens;
+					break; } } }
+		return documents;
+	}
+
+	private static String replaceExtension(Path path, String extension)
+	{
+		String name = path.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return (dot > 0 ? name.substring(0, dot) : name) + extension;
+	}
+
+	/**
+	 * A document on its way through the pipeline.
+	 */
+	static final class Document {
+
+		/** The input the document was found in, output paths are relative to it. */
+		final Path root;
+		final Path text;
+		Path tokens;
+		long bytes;
+		String content;
+		int[] offsets;
+		SplitResult result;
+		/** Failing on a document is not fatal, also on an Error like running out of memory. */
+		Throwable error;
+
+		Document(Path root, Path text)
+		{
+			this.root = root;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Counts of a run. Bytes, tokens and sentences are of the documents that
+	 * were processed without errors.
+	 */
+	public static final class Report {
+
+		public long documents;
+		public long failed;
+		public long bytes;
+		public long tokens;
+		public long sentences;
+		public long nanos;
+
+		@Override
+		public String toString()
+		{
+			double seconds = Math.max(this.nanos, 1) / 1e9;
+			double megabytes = this.bytes / (double) (1 << 20);
+			return String.format(
+					"%d documents (%d failed), %.1f MB, %d tokens, %d sentences in %.2f s%n"
+					+ "%.1f docs/s, %.2f MB/s, %.0f tokens/s",
+					this.documents, this.failed, megabytes, this.tokens, this.sentences, seconds,
+					this.documents / seconds, megabytes / seconds, this.tokens / seconds);
+		}
+	}
+
+}
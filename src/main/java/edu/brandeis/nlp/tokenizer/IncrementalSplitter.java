@@ -0,0 +1,268 @@
+package edu.brandeis.nlp.tokenizer;
+
+
+/**
+ * Sentence splitter for text that arrives in pieces.
+ *
+ * Text is pushed in with pushText() and every sentence is handed to the sink as
+ * soon as it is settled, which is when its final token is known to end a
+ * sentence. A token is complete when whitespace follows it, and whether it ends
+ * a sentence needs at most the next token (see Token.isEOS()), so a sentence is
+ * emitted one token after its end at the latest. Only the text and tokens of the
+ * sentence that is still open are kept.
+ *
+ * The splitter either tokenizes the text itself, or the caller pushes the
+ * offsets of its own tokens with pushToken() after pushing the text they cover.
+ * Sentences come out exactly as they would from SentenceSplitter.tokenize() or
+ * SentenceSplitter.split() on the whole text.
+ *
+ * An instance keeps the state of one stream and is not thread safe.
+ */
+public final class IncrementalSplitter {
+
+	/**
+	 * Receives the sentences of a stream, in order.
+	 */
+	public interface SentenceSink {
+
+		/**
+		 * Called for each sentence. The sentence is a SplitResult with one
+		 * sentence, its text runs from the begin of the first token to the end
+		 * of the last token and all offsets in it are relative to that text.
+		 *
+		 * @param sentence
+		 * @param offset offset of the sentence text in the stream
+		 */
+		void sentence(SplitResult sentence, long offset);
+	}
+
+	/** Number of emitted tokens after which they are dropped within a push. */
+	private static final int DROP_TOKENS = 1024;
+
+	private final SentenceSink sink;
+	private final boolean tokenize;
+
+	/** Text of the stream starting at offset base. */
+	private final StringBuilder buffer = new StringBuilder();
+	private long base = 0;
+
+	/** Tokens from the open sentence on, with offsets into buffer. */
+	private final TokenBuffer tokens = new TokenBuffer();
+
+	/** Index of the first token of the open sentence. */
+	private int first = 0;
+
+	/** Offset in buffer after the last emitted sentence. */
+	private int consumed = 0;
+
+	/** Index of the first token that may still end a sentence. */
+	private int checked = 0;
+
+	/** Offset in buffer where tokenizing resumes. */
+	private int scanned = 0;
+
+	/**
+	 * Create a splitter that tokenizes the text itself.
+	 */
+	public IncrementalSplitter(SentenceSink sink)
+	{
+		this(sink, true);
+	}
+
+	/**
+	 * @param sink receives the sentences
+	 * @param tokenize true if the splitter tokenizes the text, false if the
+	 * tokens are pushed with pushToken()
+	 */
+	public IncrementalSplitter(SentenceSink sink, boolean tokenize)
+	{
+		if (sink == null)
+			throw new NullPointerException("sink");
+		this.sink = sink;
+		this.tokenize = tokenize;
+	}
+
+	/**
+	 * Append the next piece of the text. A token that runs up to the end of the
+	 * piece is not complete until whitespace or finish() follows it.
+	 */
+	public void pushText(CharSequence chunk)
+	{
+		this.buffer.append(chunk);
+		pushed();
+	}
+
+	/**
+	 * Append the next piece of the text from a character array.
+	 *
+	 * @see #pushText(CharSequence)
+	 */
+	public void pushText(char[] chars, int offset, int length)
+	{
+		this.buffer.append(chars, offset, length);
+		pushed();
+	}
+
+	private void pushed()
+	{
+		if (this.tokenize)
+			scan(false);
+		compact();
+	}
+
+	/**
+	 * Add a token over text that was already pushed. Tokens must be pushed in
+	 * text order and must not overlap.
+	 *
+	 * @param begin offset of the first character of the token in the stream
+	 * @param end offset after the last character of the token in the stream
+	 * @throws IllegalStateException if this splitter tokenizes the text itself
+	 * @throws IllegalArgumentException if the token does not follow the previous
+	 * token or runs past the text pushed so far
+	 */
+	public void pushToken(long begin, long end)
+	{
+		if (this.tokenize)
+			throw new IllegalStateException("This splitter tokenizes the text itself");
+		long previous = this.base + this.scanned;
+		if (begin < previous || end < begin || end > this.base + this.buffer.length())
+			throw new IllegalArgumentException(String.format(
+					"Token offsets <%d %d> do not follow offset %d within text that ends at %d",
+					begin, end, previous, this.base + this.buffer.length()));
+		int b = (int) (begin - this.base);
+		int e = (int) (end - this.base);
+		this.tokens.add(b, b, e);
+		this.scanned = e;
+		emitSettled();
+		if (this.consumed > this.buffer.length() / 2)
+			compact();
+	}
+
+	/**
+	 * End the stream: complete the last token and emit the sentence that is
+	 * still open. The splitter can then be used for a new stream, with offsets
+	 * starting at 0 again.
+	 */
+	public void finish()
+	{
+		if (this.tokenize)
+			scan(true);
+		emitSettled();
+		if (this.tokens.size() > this.first)
+			emit(this.tokens.size());
+		this.buffer.setLength(0);
+		this.tokens.clear();
+		this.base = 0;
+		this.scanned = 0;
+		this.first = 0;
+		this.consumed = 0;
+		this.checked = 0;
+	}
+
+	/**
+	 * Number of characters held for the open sentence.
+	 */
+	int buffered()
+	{
+		return this.buffer.length() - this.consumed;
+	}
+
+	private void scan(boolean last)
+	{
+		int length = this.buffer.length();
+		int offset = this.scanned;
+		while (offset < length) {
+			int beginSpace = offset;
+			int beginToken = offset;
+			while (beginToken < length && CharClass.isWhitespace(this.buffer.charAt(beginToken)))
+				beginToken++;
+			int endToken = beginToken;
+			while (endToken < length && !CharClass.isWhitespace(this.buffer.charAt(endToken)))
+				endToken++;
+			if (endToken == length && !last) {
+				// the token may continue in the next piece, keep its leading
+				// whitespace for when it gets tokenized
+				offset = beginSpace;
+				break; }
+			if (endToken > beginToken) {
+				SentenceSplitter.addToken(this.buffer, this.tokens, beginSpace, beginToken, endToken);
+				// emit as we go so that a large piece of text does not pile up
+				// tokens for all of its sentences
+				emitSettled(); }
+			offset = endToken; }
+		this.scanned = offset;
+		emitSettled();
+	}
+
+	/**
+	 * Emit every sentence whose end is settled by the tokens seen so far.
+	 */
+	private void emitSettled()
+	{
+		int i = this.checked;
+		int size = this.tokens.size();
+		while (i < size) {
+			boolean eos;
+			if (i + 1 < size)
+				eos = this.tokens.isEOS(this.buffer, i);
+			else if (this.tokens.end(i) - this.tokens.begin(i) == 1
+					&& CharClass.isEOS(this.buffer.charAt(this.tokens.begin(i))))
+				// a single sentence final character does not need the next token
+				eos = true;
+			else
+				break;
+			i++;
+			if (eos)
+				emit(i); }
+		this.checked = i;
+		if (this.first >= DROP_TOKENS)
+			dropTokens();
+	}
+
+	/**
+	 * Emit the tokens from the first open token up to stop as a sentence.
+	 */
+	private void emit(int stop)
+	{
+		int count = stop - this.first;
+		int begin = this.tokens.begin(this.first);
+		int end = this.tokens.end(stop - 1);
+		TokenBuffer sentence = new TokenBuffer(count);
+		for (int t = this.first; t < stop; t++)
+			sentence.add(Math.max(this.tokens.beginSpace(t) - begin, 0),
+						 this.tokens.begin(t) - begin, this.tokens.end(t) - begin);
+		String text = this.buffer.substring(begin, end);
+		this.sink.sentence(new SplitResult(text, sentence, new int[] { 0, count }, 1), this.base + begin);
+		this.first = stop;
+		this.consumed = end;
+	}
+
+	/**
+	 * Drop the tokens of emitted sentences but leave the text in place.
+	 */
+	private void dropTokens()
+	{
+		this.tokens.removeFirst(this.first, 0);
+		this.checked -= this.first;
+		this.first = 0;
+	}
+
+	/**
+	 * Drop the emitted sentences and their text. This is done once per push
+	 * rather than per sentence, so that a large piece of text is not shifted
+	 * once for every sentence in it.
+	 */
+	private void compact()
+	{
+		if (this.consumed == 0)
+			return;
+		this.tokens.removeFirst(this.first, this.consumed);
+		this.buffer.delete(0, this.consumed);
+		this.base += this.consumed;
+		this.scanned -= this.consumed;
+		this.checked -= this.first;
+		this.first = 0;
+		this.consumed = 0;
+	}
+
+}
@@ -0,0 +1,168 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Immutable set of strings compiled into a character trie.
+ *
+ * Lookups run over a range of a CharSequence, optionally followed by an implied
+ * period, so testing a token of a document needs neither a substring nor a
+ * concatenation. The trie is flattened into arrays: the children of node n are
+ * at positions first[n] up to first[n + 1] of labels and targets, sorted on
+ * their label. The children of the root are also kept in a table indexed by
+ * ASCII character. The longest length and the set of final characters of the
+ * strings are kept to reject most ranges before walking the trie.
+ */
+public final class Lexicon {
+
+	private final int[] first;
+	private final char[] labels;
+	private final int[] targets;
+	private final boolean[] terminal;
+	private final int size;
+	private final int maxLength;
+	private final BitSet lastChars;
+	private final int[] rootChildren = new int[128];
+
+	private Lexicon(int[] first, char[] labels, int[] targets, boolean[] terminal,
+					int size, int maxLength, BitSet lastChars)
+	{
+		this.first = first;
+		this.labels = labels;
+		this.targets = targets;
+		this.terminal = terminal;
+		this.size = size;
+		this.maxLength = maxLength;
+		this.lastChars = lastChars;
+		for (char c = 0; c < 128; c++)
+			this.rootChildren[c] = searchChild(0, c);
+	}
+
+	/**
+	 * Compile a collection of strings into a Lexicon.
+	 *
+	 * @param words
+	 * @return the lexicon
+	 */
+	public static Lexicon compile(Collection<String> words)
+	{
+		Node root = new Node();
+		int size = 0;
+		int maxLength = 0;
+		BitSet lastChars = new BitSet();
+		for (String word : words) {
+			maxLength = Math.max(maxLength, word.length());
+			if (word.length() > 0)
+				lastChars.set(word.charAt(word.length() - 1));
+			Node node = root;
+			for (int i = 0; i < word.length(); i++)
+				node = node.children.computeIfAbsent(word.charAt(i), c -> new Node());
+			if (!node.terminal)
+				size++;
+			node.terminal = true; }
+		// number the nodes breadth first so the children of a node are adjacent
+		ArrayList<Node> nodes = new ArrayList<>();
+		nodes.add(root);
+		for (int n = 0; n < nodes.size(); n++)
+			nodes.addAll(nodes.get(n).children.values());
+		int[] first = new int[nodes.size() + 1];
+		char[] labels = new char[nodes.size() - 1];
+		int[] targets = new int[nodes.size() - 1];
+		boolean[] terminal = new boolean[nodes.size()];
+		int edge = 0;
+		int next = 1;
+		for (int n = 0; n < nodes.size(); n++) {
+			Node node = nodes.get(n);
+			first[n] = edge;
+			terminal[n] = node.terminal;
+			for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+				labels[edge] = child.getKey();
+				targets[edge] = next++;
+				edge++; } }
+		first[nodes.size()] = edge;
+		return new Lexicon(first, labels, targets, terminal, size, maxLength, lastChars);
+	}
+
+	/**
+	 * Number of strings in the lexicon.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	public boolean contains(CharSequence s)
+	{
+		return contains(s, 0, s.length());
+	}
+
+	/**
+	 * Returns true if the characters of s between start and end are in the
+	 * lexicon.
+	 */
+	public boolean contains(CharSequence s, int start, int end)
+	{
+		if (end - start > this.maxLength
+				|| (end > start && !this.lastChars.get(s.charAt(end - 1))))
+			return false;
+		int node = walk(s, start, end);
+		return node >= 0 && this.terminal[node];
+	}
+
+	/**
+	 * Returns true if the characters of s between start and end, followed by a
+	 * period, are in the lexicon.
+	 */
+	public boolean containsWithPeriod(CharSequence s, int start, int end)
+	{
+		if (end - start >= this.maxLength || !this.lastChars.get('.'))
+			return false;
+		int node = walk(s, start, end);
+		if (node < 0)
+			return false;
+		node = child(node, '.');
+		return node >= 0 && this.terminal[node];
+	}
+
+	private int walk(CharSequence s, int start, int end)
+	{
+		int node = 0;
+		for (int i = start; i < end && node >= 0; i++)
+			node = child(node, s.charAt(i));
+		return node;
+	}
+
+	private int child(int node, char c)
+	{
+		if (node == 0 && c < 128)
+			return this.rootChildren[c];
+		return searchChild(node, c);
+	}
+
+	private int searchChild(int node, char c)
+	{
+		int lo = this.first[node];
+		int hi = this.first[node + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char label = this.labels[mid];
+			if (label < c)
+				lo = mid + 1;
+			else if (label > c)
+				hi = mid - 1;
+			else
+				return this.targets[mid]; }
+		return -1;
+	}
+
+	private static final class Node {
+		final TreeMap<Character, Node> children = new TreeMap<>();
+		boolean terminal;
+	}
+
+}
@@ -2,20 +2,24 @@ package edu.brandeis.nlp.tokenizer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The main class for the application.
  *
  * This runs either in debug mode in which case the code in test() is executed
  * or in regular application mode, in which case you run this from the command
- * line and give it a filename, the result is printed to standard output.
+ * line and give it files or directories to tokenize and split, see usage().
  */
 
 public class Main {
 
-	private static final Boolean DEBUG = true;
-	//private static final Boolean DEBUG = false;
+	//private static final Boolean DEBUG = true;
+	private static final Boolean DEBUG = false;
 
 	public static void main(String[] args) throws IOException
 	{
@@ -65,11 +69,11 @@ public class Main {
 			tokens.add(new Token("John", 0, 4));
 			tokens.add(new Token("Jr.", 5, 8));
 			tokens.add(new Token("is", 9, 11));
-			tokens.add(new Token("asleep", 13, 19));
-			tokens.add(new Token(".", 20, 21));
-			tokens.add(new Token("Me", 22, 24));
-			tokens.add(new Token("too", 25, 28));
-			tokens.add(new Token(".", 29, 30));
+			tokens.add(new Token("asleep", 12, 18));
+			tokens.add(new Token(".", 18, 19));
+			tokens.add(new Token("Me", 20, 22));
+			tokens.add(new Token("too", 23, 26));
+			tokens.add(new Token(".", 26, 27));
 			result = tokenizer.splitText(text, tokens);
 			result.printSentences();
 			// You get the results from the sentences instance variable on the 
@@ -80,21 +84,83 @@ public class Main {
 		}
 	}
 
-	private static void run(String[] args) throws IOException
+	private static void run(String[] args)
 	{
-		if (args.length == 0) {
-			String jar = "BrandeisTokenizer-1.0.0-SNAPSHOT.jar";
-			System.out.println("\nUSAGE:\n");
-			System.out.println(String.format("$ java -jar %s INPUT_FILE\n", jar));
-			System.exit(0);
-		}
+		if (args.length == 0)
+			usage(0);
+		int threads = Runtime.getRuntime().availableProcessors();
+		int capacity = 0;
+		Path output = null;
+		List<Path> inputs = new ArrayList<>();
+		CorpusRunner runner;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-t"))
+					threads = count(args[i], args[++i]);
+				else if (args[i].equals("-q"))
+					capacity = count(args[i], args[++i]);
+				else if (args[i].equals("-o"))
+					output = Paths.get(args[++i]);
+				else if (args[i].startsWith("-"))
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				else
+					inputs.add(Paths.get(args[i])); }
+			if (inputs.isEmpty())
+				throw new IllegalArgumentException("No input files or directories");
+			runner = new CorpusRunner(threads, capacity == 0 ? 2 * threads : capacity, output); }
+		catch (ArrayIndexOutOfBoundsException e) {
+			System.err.println("Missing value for option " + args[args.length - 1]);
+			usage(2);
+			return; }
+		catch (IllegalArgumentException e) {
+			// also a number that does not parse
+			System.err.println(e.getMessage());
+			usage(2);
+			return; }
+		CorpusRunner.Report report;
+		try {
+			report = runner.run(inputs); }
+		catch (IOException e) {
+			// an input that cannot be listed, nothing has been processed yet
+			System.err.println(e.getMessage());
+			usage(2);
+			return; }
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return; }
+		System.out.println(report);
+		if (report.failed > 0)
+			System.exit(1);
+	}
 
-		Tokenizer tokenizer = new Tokenizer();
-		TokenizedText result;
-		String fname = args[0];
-		System.out.println(fname);
-		result = tokenizer.tokenizeFile(new File(fname));
-		result.printSentences();
+	/**
+	 * Parse the value of an option that takes a count, which must be at least 1.
+	 */
+	private static int count(String option, String value)
+	{
+		int count = Integer.parseInt(value);
+		if (count < 1)
+			throw new IllegalArgumentException(String.format("%s needs a number of at least 1: %s", option, value));
+		return count;
+	}
+
+	/**
+	 * Print the usage and exit with the status, to standard error unless the
+	 * status is 0.
+	 */
+	private static void usage(int status)
+	{
+		String jar = "BrandeisTokenizer-1.0.0-SNAPSHOT.jar";
+		PrintStream out = status == 0 ? System.out : System.err;
+		out.println("\nUSAGE:\n");
+		out.println(String.format("$ java -jar %s [-t THREADS] [-q CAPACITY] [-o DIRECTORY] INPUT...\n", jar));
+		out.println("Tokenizes and splits text files and the *.txt files in directories. A file");
+		out.println("NAME.txt is split with the tokens in NAME.btok or NAME.tok if there is one,");
+		out.println("the sentence offsets are written to NAME.sent.\n");
+		out.println("  -t THREADS    number of worker threads, default the number of processors");
+		out.println("  -q CAPACITY   documents queued between stages, default twice the threads");
+		out.println("  -o DIRECTORY  write the sentence files here instead of next to the input\n");
+		System.exit(status);
 	}
 
 }
@@ -0,0 +1,155 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Tokenizes and splits UTF-8 corpus files of any size.
+ *
+ * The file is mapped into memory one window at a time, each window is decoded
+ * and pushed into an IncrementalSplitter, which hands the sentences to a sink
+ * as it finds them. A window ends after the last ASCII whitespace byte in it,
+ * such a byte is never part of a multi-byte character and never inside a
+ * token, so windows only split the text between tokens. Memory use is bounded
+ * by the window size and the longest sentence, not by the size of the file.
+ */
+public final class MappedCorpus {
+
+	static final int DEFAULT_WINDOW = 1 << 20;
+
+	private final int window;
+
+	public MappedCorpus()
+	{
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * @param window the number of bytes mapped at a time
+	 */
+	MappedCorpus(int window)
+	{
+		if (window < 4)
+			throw new IllegalArgumentException("Window must fit a character: " + window);
+		this.window = window;
+	}
+
+	/**
+	 * Tokenize and split a text file.
+	 *
+	 * @param text a UTF-8 text file
+	 * @param sink receives the sentences, with character offsets in the text
+	 * @throws IOException
+	 */
+	public void tokenize(Path text, IncrementalSplitter.SentenceSink sink) throws IOException
+	{
+		IncrementalSplitter splitter = new IncrementalSplitter(sink);
+		read(text, splitter, null);
+		splitter.finish();
+	}
+
+	/**
+	 * Split a text file into sentences using the tokens from a token file. The
+	 * token file is either a binary token file or has a line per token in text
+	 * order, with the offsets in the "begin end text" or the "beginSpace begin
+	 * end text" format, just like Token(String[]). See TokenFile.
+	 *
+	 * @param text a UTF-8 text file
+	 * @param tokens a token file
+	 * @param sink receives the sentences, with character offsets in the text
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a token does not fit the text
+	 */
+	public void split(Path text, Path tokens, IncrementalSplitter.SentenceSink sink) throws IOException
+	{
+		IncrementalSplitter splitter = new IncrementalSplitter(sink, false);
+		try (TokenFile.Reader reader = TokenFile.Reader.open(tokens, TokenFile.WINDOW)) {
+			TokenReader tokenReader = new TokenReader(reader, splitter);
+			read(text, splitter, tokenReader);
+			tokenReader.pushUpTo(Long.MAX_VALUE); }
+		splitter.finish();
+	}
+
+	private void read(Path path, IncrementalSplitter splitter, TokenReader tokens) throws IOException
+	{
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.allocate(this.window);
+		long pushed = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				int length = (int) Math.min(this.window, size - position);
+				MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				boolean last = position + length == size;
+				if (!last)
+					bytes.limit(cut(bytes, length));
+				CoderResult result;
+				do {
+					result = decoder.decode(bytes, chars, last);
+					if (last && result.isUnderflow())
+						result = decoder.flush(chars);
+					chars.flip();
+					pushed += chars.remaining();
+					splitter.pushText(chars.array(), 0, chars.remaining());
+					chars.clear();
+					if (tokens != null)
+						tokens.pushUpTo(pushed); }
+				while (result.isOverflow());
+				// bytes of a character that runs past the window are left in the
+				// buffer and mapped again with the next window
+				position += bytes.position(); } }
+	}
+
+	/**
+	 * Return the length of the window up to and including its last ASCII
+	 * whitespace byte, or the whole length if it has none.
+	 */
+	private static int cut(MappedByteBuffer bytes, int length)
+	{
+		for (int i = length - 1; i >= 0; i--) {
+			byte b = bytes.get(i);
+			if (b >= 0 && CharClass.isWhitespace((char) b))
+				return i + 1; }
+		return length;
+	}
+
+	/**
+	 * Reads tokens from a token file and pushes them into the splitter once the
+	 * text they cover has been pushed.
+	 */
+	private static final class TokenReader {
+
+		private final TokenFile.Reader reader;
+		private final IncrementalSplitter splitter;
+		private boolean pending = false;
+
+		TokenReader(TokenFile.Reader reader, IncrementalSplitter splitter)
+		{
+			this.reader = reader;
+			this.splitter = splitter;
+		}
+
+		void pushUpTo(long pushed) throws IOException
+		{
+			while (this.pending || this.reader.next()) {
+				if (this.reader.end > pushed) {
+					this.pending = true;
+					return; }
+				this.splitter.pushToken(this.reader.begin, this.reader.end);
+				this.pending = false; }
+		}
+	}
+
+}
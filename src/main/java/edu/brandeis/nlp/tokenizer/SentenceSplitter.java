@@ -0,0 +1,525 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+
+/**
+ * Stateless tokenizer and sentence splitter.
+ *
+ * All state of a call lives on the stack of that call, or in the SplitScratch
+ * the caller passes in, so one instance can be shared by any number of threads.
+ * Results are returned as an immutable SplitResult. Tokens are kept as offsets
+ * in a TokenBuffer and all tests are done on token indices, no Token objects
+ * are created.
+ */
+public final class SentenceSplitter {
+
+	/** Smallest number of characters worth handing to a thread of its own. */
+	static final int MIN_PARTITION = 1 << 18;
+
+	/** Smallest number of characters worth finding the whitespace of with WhitespaceMask. */
+	static final int MIN_MASKED = 256;
+
+	public SentenceSplitter() { }
+
+	/**
+	 * Tokenize the text and split it into sentences.
+	 *
+	 * @param text
+	 * @return the tokens and sentences of the text
+	 */
+	public SplitResult tokenize(CharSequence text)
+	{
+		String string = text.toString();
+		TokenBuffer tokens = new TokenBuffer(string.length() / 4);
+		tokenize(string, 0, string.length(), tokens);
+		return split(string, tokens, new int[tokens.size() / 16 + 2]);
+	}
+
+	/**
+	 * Tokenize the text and split it into sentences, in the buffers of the
+	 * scratch. The result is the same as that of tokenize(text), but it is only
+	 * valid until the scratch is used again.
+	 *
+	 * @param text
+	 * @param scratch the buffers to use
+	 * @return the tokens and sentences of the text
+	 */
+	public SplitResult tokenize(CharSequence text, SplitScratch scratch)
+	{
+		String string = text.toString();
+		TokenBuffer tokens = scratch.tokens;
+		tokens.clear();
+		tokenize(string, 0, string.length(), tokens);
+		return split(string, tokens, scratch);
+	}
+
+	/**
+	 * Tokenize the text and split it into sentences, using the pool to work on
+	 * parts of a large text at the same time. The result is the same as that
+	 * of tokenize(text).
+	 *
+	 * The text is cut where a run of whitespace starts, so that no token and no
+	 * leading whitespace of a token cross a cut, and the parts are tokenized
+	 * in parallel. The tokens are then tested for sentence ends in parallel
+	 * over the tokens of the whole text, so the test on the last token of a
+	 * part sees the first token of the next part as usual.
+	 *
+	 * @param text
+	 * @param pool the pool that runs the parts
+	 * @return the tokens and sentences of the text
+	 */
+	public SplitResult tokenize(CharSequence text, ForkJoinPool pool)
+	{
+		return tokenize(text, pool, MIN_PARTITION);
+	}
+
+	SplitResult tokenize(CharSequence text, ForkJoinPool pool, int minPartition)
+	{
+		String string = text.toString();
+		int[] cuts = cuts(string, partitions(string.length(), pool, minPartition));
+		if (cuts.length <= 2)
+			return tokenize(string);
+		List<Callable<TokenBuffer>> parts = new ArrayList<>();
+		for (int p = 0; p < cuts.length - 1; p++) {
+			int from = cuts[p];
+			int to = cuts[p + 1];
+			parts.add(() -> {
+				TokenBuffer part = new TokenBuffer((to - from) / 4);
+				tokenize(string, from, to, part);
+				return part; }); }
+		List<TokenBuffer> buffers = invokeAll(pool, parts);
+		int size = 0;
+		for (TokenBuffer buffer : buffers)
+			size += buffer.size();
+		TokenBuffer tokens = new TokenBuffer(size);
+		for (TokenBuffer buffer : buffers)
+			tokens.addAll(buffer);
+		return split(string, tokens, pool, minPartition / 4);
+	}
+
+	/**
+	 * Split a text into sentences given the token offsets over that text.
+	 *
+	 * @param text
+	 * @param offsets begin and end character offsets of the tokens, as
+	 * consecutive pairs in text order
+	 * @return the tokens and sentences of the text
+	 * @throws IllegalArgumentException if the offsets do not fit the text
+	 */
+	public SplitResult split(CharSequence text, int[] offsets)
+	{
+		String string = text.toString();
+		TokenBuffer tokens = tokens(string, offsets, new TokenBuffer(offsets.length / 2));
+		return split(string, tokens, new int[tokens.size() / 16 + 2]);
+	}
+
+	/**
+	 * Split a text into sentences given the token offsets over that text, in the
+	 * buffers of the scratch. The result is the same as that of split(text,
+	 * offsets), but it is only valid until the scratch is used again.
+	 *
+	 * @param text
+	 * @param offsets begin and end character offsets of the tokens, as
+	 * consecutive pairs in text order
+	 * @param scratch the buffers to use
+	 * @return the tokens and sentences of the text
+	 * @throws IllegalArgumentException if the offsets do not fit the text
+	 */
+	public SplitResult split(CharSequence text, int[] offsets, SplitScratch scratch)
+	{
+		String string = text.toString();
+		scratch.tokens.clear();
+		scratch.tokens.ensureCapacity(offsets.length / 2);
+		return split(string, tokens(string, offsets, scratch.tokens), scratch);
+	}
+
+	/**
+	 * Split a text into sentences given the token offsets over that text, using
+	 * the pool to test parts of a long list of tokens at the same time. The
+	 * result is the same as that of split(text, offsets).
+	 *
+	 * @param text
+	 * @param offsets begin and end character offsets of the tokens, as
+	 * consecutive pairs in text order
+	 * @param pool the pool that runs the parts
+	 * @return the tokens and sentences of the text
+	 * @throws IllegalArgumentException if the offsets do not fit the text
+	 */
+	public SplitResult split(CharSequence text, int[] offsets, ForkJoinPool pool)
+	{
+		String string = text.toString();
+		return split(string, tokens(string, offsets, new TokenBuffer(offsets.length / 2)), pool, MIN_PARTITION / 4);
+	}
+
+	/**
+	 * Update the sentences of a text after an edit, without tokenizing and
+	 * splitting all of it again. The result is the same as that of
+	 * tokenize(text).sentenceOffsets() on the edited text.
+	 *
+	 * Tokens are made from the whitespace separated parts of the text and
+	 * whether a token ends a sentence depends on the token after it only, so
+	 * a sentence boundary can only move near the edit. The sentences around
+	 * the edit are tokenized and split again, from the nearest sentence before
+	 * the edit whose first token starts after whitespace and is separated from
+	 * the edit by whitespace, up to the nearest such sentence after the edit.
+	 * Usually that is the sentence with the edit and the one on either side.
+	 * The other sentences are copied, the ones after the edit shifted by the
+	 * change in length, so apart from an array copy the time taken depends on
+	 * the size of the edit and not of the text.
+	 *
+	 * @param text the text after the edit
+	 * @param sentences begin and end offsets of the sentences of the text before
+	 * the edit, as consecutive pairs, as from SplitResult.sentenceOffsets()
+	 * @param offset where the edit starts
+	 * @param removed number of characters the edit removed at offset
+	 * @param inserted number of characters the edit inserted at offset
+	 * @return begin and end offsets of the sentences of the edited text, as
+	 * consecutive pairs
+	 * @throws IllegalArgumentException if the edit or the sentences do not fit
+	 * the text
+	 */
+	public int[] resplit(CharSequence text, int[] sentences, int offset, int removed, int inserted)
+	{
+		int length = text.length();
+		int delta = inserted - removed;
+		int previousLength = length - delta;
+		if (offset < 0 || removed < 0 || inserted < 0 || offset + inserted > length || offset + removed > previousLength)
+			throw new IllegalArgumentException(String.format(
+					"Edit at %d removing %d and inserting %d characters does not fit a text of length %d",
+					offset, removed, inserted, length));
+		if (sentences.length % 2 != 0)
+			throw new IllegalArgumentException("Sentence offsets must come in begin and end pairs");
+		int count = sentences.length / 2;
+		if (count > 0 && (sentences[0] < 0 || sentences[sentences.length - 1] > previousLength))
+			throw new IllegalArgumentException("Sentence offsets do not fit the text before the edit");
+		int editEnd = offset + inserted;
+
+		// the first sentence to split again, and where its text starts
+		int first = sentenceAt(sentences, offset);
+		while (first >= 0 && !startsBefore(text, sentences[2 * first], offset))
+			first--;
+		int from = first < 0 ? 0 : sentences[2 * first];
+		first = Math.max(first, 0);
+
+		// the last sentence to split again, and where its text ends
+		int last = first;
+		while (last < count && sentences[2 * last + 1] < offset + removed)
+			last++;
+		while (last < count && !endsAfter(text, sentences[2 * last + 1] + delta, editEnd))
+			last++;
+		int to = last == count ? length : sentences[2 * last + 1] + delta;
+		last = Math.min(last, count - 1);
+
+		// from is at the start of the text or of a token after whitespace, and
+		// to at the end of the text or at whitespace, as tokenize() needs
+		String string = text.toString();
+		TokenBuffer tokens = new TokenBuffer(Math.max((to - from) / 4, 16));
+		tokenize(string, from, to, tokens);
+
+		int[] split = new int[16];
+		int size = 0;
+		for (int i = 0, begin = 0; i < tokens.size(); i++) {
+			if (i + 1 < tokens.size() && !tokens.isEOS(string, i))
+				continue;
+			if (size + 2 > split.length)
+				split = Arrays.copyOf(split, split.length * 2);
+			split[size++] = tokens.begin(begin);
+			split[size++] = tokens.end(i);
+			begin = i + 1; }
+
+		int after = 2 * (last + 1);
+		int[] result = new int[2 * first + size + sentences.length - after];
+		System.arraycopy(sentences, 0, result, 0, 2 * first);
+		System.arraycopy(split, 0, result, 2 * first, size);
+		for (int i = after, j = 2 * first + size; i < sentences.length; i++, j++)
+			result[j] = sentences[i] + delta;
+		return result;
+	}
+
+	/**
+	 * Index of the last sentence that begins at or before the offset, -1 if
+	 * there is none.
+	 */
+	private static int sentenceAt(int[] sentences, int offset)
+	{
+		int low = 0;
+		int high = sentences.length / 2 - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (sentences[2 * middle] <= offset)
+				low = middle + 1;
+			else
+				high = middle - 1; }
+		return high;
+	}
+
+	/**
+	 * Returns true if the sentence that begins at begin keeps its first token
+	 * and the sentence break before it after an edit at offset: whitespace
+	 * comes right before the sentence and between its first token and the edit.
+	 */
+	private static boolean startsBefore(CharSequence text, int begin, int offset)
+	{
+		if (begin > 0 && !CharClass.isWhitespace(text.charAt(begin - 1)))
+			return false;
+		for (int i = begin; i < offset; i++) {
+			if (CharClass.isWhitespace(text.charAt(i)))
+				return true; }
+		return false;
+	}
+
+	/**
+	 * Returns true if the sentence that ends at end, in the edited text, keeps
+	 * its last token and the sentence break after it after an edit that ends
+	 * at editEnd: whitespace comes right after the sentence and between the
+	 * edit and its last token.
+	 */
+	private static boolean endsAfter(CharSequence text, int end, int editEnd)
+	{
+		if (end < text.length() && !CharClass.isWhitespace(text.charAt(end)))
+			return false;
+		for (int i = end - 1; i >= editEnd; i--) {
+			if (CharClass.isWhitespace(text.charAt(i)))
+				return true; }
+		return false;
+	}
+
+	private static TokenBuffer tokens(String text, int[] offsets, TokenBuffer tokens)
+	{
+		if (offsets.length % 2 != 0)
+			throw new IllegalArgumentException("Token offsets must come in begin and end pairs");
+		for (int i = 0; i < offsets.length; i += 2) {
+			int begin = offsets[i];
+			int end = offsets[i + 1];
+			if (begin < 0 || end < begin || end > text.length())
+				throw new IllegalArgumentException(String.format(
+						"Token offsets <%d %d> do not fit a text of length %d",
+						begin, end, text.length()));
+			tokens.add(begin, begin, end); }
+		return tokens;
+	}
+
+	/**
+	 * Add the tokens of the text between from and to, where from and to are
+	 * at the start of a run of whitespace or at the ends of the text. From
+	 * may also be at the start of a token that follows whitespace.
+	 */
+	private static void tokenize(String text, int from, int to, TokenBuffer tokens)
+	{
+		WhitespaceMask mask = WhitespaceMask.INSTANCE;
+		if (mask != null && to - from >= MIN_MASKED)
+			tokenize(text, from, to, tokens, mask);
+		else
+			tokenize(text, from, to, tokens, null);
+	}
+
+	/**
+	 * Add the tokens of the text between from and to, finding the whitespace
+	 * with the masks, or with the scalar loops of CharClass if mask is null.
+	 * The tokens are the same either way.
+	 */
+	static void tokenize(String text, int from, int to, TokenBuffer tokens, WhitespaceMask mask)
+	{
+		if (mask != null) {
+			long[] masks = mask.masks(text, from, to);
+			// a set bit in changes is where whitespace starts or stops, which
+			// is alternately the begin and the end of a token, taking the
+			// text to start after whitespace
+			long previous = 1;
+			int beginSpace = from;
+			int beginToken = -1;
+			for (int word = 0; word < masks.length; word++) {
+				long bits = masks[word];
+				long changes = bits ^ (bits << 1 | previous);
+				previous = bits >>> 63;
+				while (changes != 0) {
+					int offset = from + (word << 6) + Long.numberOfTrailingZeros(changes);
+					changes &= changes - 1;
+					if (beginToken < 0) {
+						beginToken = offset; }
+					else {
+						addToken(text, tokens, beginSpace, beginToken, offset);
+						beginSpace = offset;
+						beginToken = -1; } } }
+			return; }
+		int offset = from;
+		while (offset < to) {
+			int beginSpace = offset;
+			int beginToken = CharClass.skipWhitespace(text, offset, to);
+			offset = CharClass.skipNonWhitespace(text, beginToken, to);
+			// this prevents adding a token with just leading whitespace, which
+			// happens when the text ends with some white space
+			if (offset > beginToken)
+				addToken(text, tokens, beginSpace, beginToken, offset); }
+	}
+
+	private SplitResult split(String text, TokenBuffer tokens, SplitScratch scratch)
+	{
+		SplitResult result = split(text, tokens, scratch.starts);
+		// keep the array if it had to grow
+		scratch.starts = result.sentenceStarts();
+		return result;
+	}
+
+	private SplitResult split(String text, TokenBuffer tokens, int[] starts)
+	{
+		int size = tokens.size();
+		int sentences = 0;
+		if (size > 0) {
+			starts[sentences++] = 0;
+			for (int i = 0; i < size - 1; i++) {
+				if (tokens.isEOS(text, i)) {
+					if (sentences + 1 == starts.length)
+						starts = Arrays.copyOf(starts, starts.length * 2);
+					starts[sentences++] = i + 1; } }
+			starts[sentences] = size; }
+		return new SplitResult(text, tokens, starts, sentences);
+	}
+
+	/**
+	 * Split into sentences by testing parts of the tokens in parallel. Each part
+	 * gives the sentence starts in its range of tokens, in order, so joining
+	 * them gives the same starts as the sequential loop.
+	 */
+	private SplitResult split(String text, TokenBuffer tokens, ForkJoinPool pool, int minPartition)
+	{
+		int size = tokens.size();
+		int count = partitions(size, pool, minPartition);
+		if (count <= 1)
+			return split(text, tokens, new int[size / 16 + 2]);
+		List<Callable<int[]>> parts = new ArrayList<>();
+		// the last token never starts a new sentence, so it is not tested
+		for (int p = 0; p < count; p++) {
+			int from = (int) ((long) (size - 1) * p / count);
+			int to = (int) ((long) (size - 1) * (p + 1) / count);
+			parts.add(() -> sentenceStarts(text, tokens, from, to)); }
+		List<int[]> starts = invokeAll(pool, parts);
+		int sentences = 1;
+		for (int[] part : starts)
+			sentences += part.length;
+		int[] joined = new int[sentences + 1];
+		int n = 1;
+		for (int[] part : starts) {
+			System.arraycopy(part, 0, joined, n, part.length);
+			n += part.length; }
+		joined[sentences] = size;
+		return new SplitResult(text, tokens, joined, sentences);
+	}
+
+	private static int[] sentenceStarts(String text, TokenBuffer tokens, int from, int to)
+	{
+		int[] starts = new int[(to - from) / 16 + 1];
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			if (tokens.isEOS(text, i)) {
+				if (n == starts.length)
+					starts = Arrays.copyOf(starts, starts.length * 2);
+				starts[n++] = i + 1; } }
+		return Arrays.copyOf(starts, n);
+	}
+
+	/**
+	 * Number of parts to cut a length into, a few per thread of the pool so
+	 * that uneven parts even out, but none smaller than minPartition.
+	 */
+	private static int partitions(int length, ForkJoinPool pool, int minPartition)
+	{
+		if (pool.getParallelism() <= 1)
+			return 1;
+		return Math.max(1, Math.min(pool.getParallelism() * 4, length / Math.max(minPartition, 1)));
+	}
+
+	/**
+	 * Return the offsets where the text is cut into about count parts, starting
+	 * with 0 and ending with the length of the text. Each inner cut is at the
+	 * first character of a run of whitespace.
+	 */
+	private static int[] cuts(String text, int count)
+	{
+		int length = text.length();
+		int[] cuts = new int[count + 1];
+		int n = 0;
+		cuts[n++] = 0;
+		for (int p = 1; p < count; p++) {
+			int cut = (int) ((long) length * p / count);
+			cut = Math.max(cut, cuts[n - 1] + 1);
+			while (cut < length && !(CharClass.isWhitespace(text.charAt(cut))
+					&& !CharClass.isWhitespace(text.charAt(cut - 1))))
+				cut++;
+			if (cut < length)
+				cuts[n++] = cut; }
+		cuts[n++] = length;
+		return Arrays.copyOf(cuts, n);
+	}
+
+	private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks)
+	{
+		// a caller interrupted before the tasks run does not wait for them
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("Interrupted while splitting");
+		List<T> results = new ArrayList<>(tasks.size());
+		for (Future<T> future : pool.invokeAll(tasks)) {
+			try {
+				results.add(future.get()); }
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Interrupted while splitting"); }
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause); } }
+		return results;
+	}
+
+	/**
+	 * Add the whitespace separated token between beginToken and endToken,
+	 * splitting off leading and trailing punctuations. A period that follows an
+	 * abbreviation stays with the abbreviation. This does the same as
+	 * Token.splitPunctuations(), but on offsets.
+	 */
+	static void addToken(CharSequence text, TokenBuffer tokens, int beginSpace, int beginToken, int endToken)
+	{
+		int newBegin = beginToken;
+		while (newBegin < endToken && CharClass.isPunctuation(text.charAt(newBegin)))
+			newBegin++;
+		if (newBegin == endToken) {
+			// this is the case when a token consists of punctuations only
+			for (int p = beginToken; p < endToken; p++)
+				tokens.add(p == beginToken ? beginSpace : p, p, p + 1);
+			return; }
+		int newEnd = endToken;
+		while (CharClass.isPunctuation(text.charAt(newEnd - 1)))
+			newEnd--;
+		for (int p = beginToken; p < newBegin; p++)
+			tokens.add(p == beginToken ? beginSpace : p, p, p + 1);
+		int coreEnd = newEnd;
+		if (newEnd < endToken
+				&& text.charAt(newEnd) == '.'
+				&& Abbreviations.ABBREV_LEXICON.containsWithPeriod(text, newBegin, newEnd))
+			coreEnd++;
+		tokens.add(newBegin == beginToken ? beginSpace : newBegin, newBegin, coreEnd);
+		for (int p = coreEnd; p < endToken; p++)
+			tokens.add(p, p, p + 1);
+	}
+
+	static void linkTokens(ArrayList<Token> tokens)
+	{
+		for (int i = 0; i < tokens.size() - 1; i++) {
+			Token t1 = tokens.get(i);
+			Token t2 = tokens.get(i + 1);
+			t1.next = t2;
+			t2.previous = t1; }
+	}
+
+}
@@ -0,0 +1,191 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Immutable result of a SentenceSplitter call, with the tokens and sentences
+ * of a text. Sentences are runs of consecutive tokens and are stored as the
+ * index of their first token. Token and Sentence objects are only created when
+ * they are asked for.
+ */
+public final class SplitResult {
+
+	private final String text;
+	private final TokenBuffer tokens;
+	private final int[] sentenceStarts;
+	private final int sentences;
+
+	SplitResult(String text, TokenBuffer tokens, int[] sentenceStarts, int sentences)
+	{
+		this.text = text;
+		this.tokens = tokens;
+		this.sentenceStarts = sentenceStarts;
+		this.sentences = sentences;
+	}
+
+	public String getText()
+	{
+		return this.text;
+	}
+
+	public int tokenCount()
+	{
+		return this.tokens.size();
+	}
+
+	public int tokenBegin(int i)
+	{
+		return this.tokens.begin(i);
+	}
+
+	public int tokenEnd(int i)
+	{
+		return this.tokens.end(i);
+	}
+
+	/**
+	 * Return a new Token for the token at the given index. The token is not
+	 * linked to its neighbours.
+	 */
+	public Token token(int i)
+	{
+		return this.tokens.token(this.text, i);
+	}
+
+	public int sentenceCount()
+	{
+		return this.sentences;
+	}
+
+	public int sentenceBegin(int i)
+	{
+		return tokenBegin(firstToken(i));
+	}
+
+	public int sentenceEnd(int i)
+	{
+		return tokenEnd(lastToken(i));
+	}
+
+	/**
+	 * Index of the first token of the sentence.
+	 */
+	public int firstToken(int i)
+	{
+		checkSentence(i);
+		return this.sentenceStarts[i];
+	}
+
+	/**
+	 * Index of the last token of the sentence.
+	 */
+	public int lastToken(int i)
+	{
+		checkSentence(i);
+		return this.sentenceStarts[i + 1] - 1;
+	}
+
+	/**
+	 * Return the character offsets of all sentences, with the begin and end of
+	 * each sentence in consecutive pairs.
+	 */
+	public int[] sentenceOffsets()
+	{
+		int[] offsets = new int[this.sentences * 2];
+		for (int i = 0; i < this.sentences; i++) {
+			offsets[2 * i] = this.tokens.begin(this.sentenceStarts[i]);
+			offsets[2 * i + 1] = this.tokens.end(this.sentenceStarts[i + 1] - 1); }
+		return offsets;
+	}
+
+	/**
+	 * Return a new Sentence for the sentence at the given index, with new
+	 * tokens that are linked to each other but not to the tokens of other
+	 * sentences.
+	 */
+	public Sentence sentence(int i)
+	{
+		ArrayList<Token> list = new ArrayList<>(lastToken(i) - firstToken(i) + 1);
+		for (int t = firstToken(i); t <= lastToken(i); t++)
+			list.add(token(t));
+		SentenceSplitter.linkTokens(list);
+		return sentence(list, 0, list.size());
+	}
+
+	/**
+	 * The sentences in text order, each Sentence is created when the iterator
+	 * gets to it, as with sentence(int).
+	 */
+	public Iterable<Sentence> sentences()
+	{
+		return () -> new Iterator<Sentence>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return this.next < SplitResult.this.sentences;
+			}
+
+			@Override
+			public Sentence next()
+			{
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return sentence(this.next++);
+			}
+		};
+	}
+
+	/**
+	 * Create the TokenizedText for this result, with new Token and Sentence
+	 * objects.
+	 */
+	public TokenizedText toTokenizedText()
+	{
+		ArrayList<Token> list = new ArrayList<>(tokenCount());
+		for (int i = 0; i < tokenCount(); i++)
+			list.add(token(i));
+		SentenceSplitter.linkTokens(list);
+		return toTokenizedText(list);
+	}
+
+	/**
+	 * Create the TokenizedText for this result using the given tokens, which
+	 * must be the tokens this result was created from.
+	 */
+	TokenizedText toTokenizedText(ArrayList<Token> list)
+	{
+		TokenizedText result = new TokenizedText();
+		result.tokens = list;
+		for (int i = 0; i < this.sentences; i++)
+			result.sentences.add(sentence(list, firstToken(i), lastToken(i) + 1));
+		return result;
+	}
+
+	private static Sentence sentence(ArrayList<Token> list, int from, int to)
+	{
+		Sentence sentence = new Sentence();
+		sentence.tokens.ensureCapacity(to - from);
+		for (int t = from; t < to; t++)
+			sentence.add(list.get(t));
+		sentence.setOffsets();
+		return sentence;
+	}
+
+	int[] sentenceStarts()
+	{
+		return this.sentenceStarts;
+	}
+
+	private void checkSentence(int i)
+	{
+		if (i < 0 || i >= this.sentences)
+			throw new IndexOutOfBoundsException("Sentence index: " + i);
+	}
+
+}
@@ -0,0 +1,32 @@
+package edu.brandeis.nlp.tokenizer;
+
+
+/**
+ * Buffers that a SentenceSplitter call can reuse instead of allocating its own,
+ * for callers that split a steady stream of documents.
+ *
+ * A SplitResult made with a scratch is backed by the buffers of the scratch, it
+ * is only valid until the scratch is used again and must not be kept. A scratch
+ * is used by one thread at a time. The buffers grow to fit the largest document
+ * seen, use isOversized() to decide whether a scratch is worth keeping.
+ */
+public final class SplitScratch {
+
+	/** Number of tokens above which a scratch is not worth keeping. */
+	static final int MAX_RETAINED_TOKENS = 1 << 20;
+
+	final TokenBuffer tokens = new TokenBuffer(1024);
+	int[] starts = new int[128];
+
+	public SplitScratch() { }
+
+	/**
+	 * Return true if the buffers grew so large for a big document that keeping
+	 * them for other documents would waste memory.
+	 */
+	public boolean isOversized()
+	{
+		return this.tokens.capacity() > MAX_RETAINED_TOKENS;
+	}
+
+}
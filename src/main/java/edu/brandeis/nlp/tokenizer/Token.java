@@ -2,7 +2,6 @@ package edu.brandeis.nlp.tokenizer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -10,8 +9,8 @@ import java.util.Set;
 public class Token {
 
 	private static Boolean DEBUG = false;
-	private static String PUNCTUATIONS = ".,!?'`\";:][(){}\\<>";
-	private static String EOS = ".!?";
+	static final String PUNCTUATIONS = ".,!?'`\";:][(){}\\<>";
+	static final String EOS = ".!?";
 
 	static final String[] INITIAL_TOKENS_BROWN = {
 	    "The", "In", "But", "Mr", "He", "A", "It", "And", "For", "The",
@@ -34,9 +33,15 @@ public class Token {
 
 	public static final Set<String> INITIAL_TOKENS = new HashSet<>();
 
+	/**
+	 * INITIAL_TOKENS compiled into a trie, for lookups over ranges of a text.
+	 */
+	public static final Lexicon INITIAL_LEXICON;
+
 	static {
 		INITIAL_TOKENS.addAll(Arrays.asList(INITIAL_TOKENS_BROWN));
-		INITIAL_TOKENS.addAll(Arrays.asList(INITIAL_TOKENS_OTHER)); }
+		INITIAL_TOKENS.addAll(Arrays.asList(INITIAL_TOKENS_OTHER));
+		INITIAL_LEXICON = Lexicon.compile(INITIAL_TOKENS); }
 
 	public String text;
 	public int length, beginSpace, beginToken, endToken;
@@ -108,26 +113,26 @@ public class Token {
 
 	public boolean isPunctuation()
 	{
-		return this.length == 1 && PUNCTUATIONS.contains(this.text);
+		return this.length == 1 && CharClass.isPunctuation(this.text.charAt(0));
 	}
 
 	public boolean isAbbreviation()
 	{
-		return Abbreviations.ABBREVS.contains(this.text);
+		return Abbreviations.ABBREV_LEXICON.contains(this.text);
 	}
 
 	public boolean isEndAbbreviation()
 	{
-		return Abbreviations.END_ABBREVS.contains(this.text);
+		return Abbreviations.END_ABBREV_LEXICON.contains(this.text);
 	}
 
 	public boolean isEOS()
 	{
 		// TODO: add way to deal with sentence final abbreviations
-		return (this.length == 1 && EOS.contains(this.text))
+		return (this.length == 1 && CharClass.isEOS(this.text.charAt(0)))
 				|| (this.isEndAbbreviation()
 					&& this.next != null
-					&& Token.INITIAL_TOKENS.contains(this.next.text));
+					&& Token.INITIAL_LEXICON.contains(this.next.text));
 	}
 
 	private boolean isPeriod()
@@ -191,12 +196,10 @@ public class Token {
 	{
 		int p0 = this.beginToken;
 		int p = 0;
-		while (p < this.text.length()) {
-			String c = this.text.substring(p, p + 1);
-			if (! PUNCTUATIONS.contains(c))
-				break;
-			openingPunctuations.add(new Token(c, p0 + p, p0 + p + 1));
-			p++; }
+		while (p < this.length && CharClass.isPunctuation(this.text.charAt(p)))
+			p++;
+		for (int i = 0; i < p; i++)
+			openingPunctuations.add(new Token(String.valueOf(this.text.charAt(i)), p0 + i, p0 + i + 1));
 		// make sure that the first one inherits the white space offset from
 		// the original token
 		if (openingPunctuations.size() > 0)
@@ -209,13 +212,10 @@ public class Token {
 	{
 		int p0 = this.beginToken;
  		int p = this.text.length() - 1;
-		while (p >= 0) {
-			String c = this.text.substring(p, p + 1);
-			if (! PUNCTUATIONS.contains(c))
-				break;
-			closingPunctuations.add(new Token(c, p0 + p, p0 + p + 1));
-			p--; }
-		Collections.reverse(closingPunctuations);
+		while (p >= 0 && CharClass.isPunctuation(this.text.charAt(p)))
+			p--;
+		for (int i = p + 1; i < this.length; i++)
+			closingPunctuations.add(new Token(String.valueOf(this.text.charAt(i)), p0 + i, p0 + i + 1));
 		int newEnd = p0 + p + 1;
 		return newEnd;
 	}
@@ -231,7 +231,7 @@ public class Token {
 	{
 		if (puncts.size() > 0
 				&& puncts.get(0).isPeriod()
-				&& Abbreviations.ABBREVS.contains(coreToken.text + ".")) {
+				&& Abbreviations.ABBREV_LEXICON.containsWithPeriod(coreToken.text, 0, coreToken.length)) {
 			coreToken.text = coreToken.text + ".";
 			coreToken.endToken += 1;
 			puncts.remove(0);
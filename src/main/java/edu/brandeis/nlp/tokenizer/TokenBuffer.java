@@ -0,0 +1,166 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.util.Arrays;
+
+
+/**
+ * Growable store of token offsets into a text. Token i is the text between
+ * begin(i) and end(i), with its leading whitespace starting at beginSpace(i).
+ * The offsets are kept in three parallel int arrays so that a document does
+ * not need one object per token, a Token is only created when asked for.
+ */
+public final class TokenBuffer {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] beginSpace;
+	private int[] begin;
+	private int[] end;
+	private int size;
+
+	public TokenBuffer()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TokenBuffer(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		this.beginSpace = new int[capacity];
+		this.begin = new int[capacity];
+		this.end = new int[capacity];
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public int beginSpace(int i)
+	{
+		checkIndex(i);
+		return this.beginSpace[i];
+	}
+
+	public int begin(int i)
+	{
+		checkIndex(i);
+		return this.begin[i];
+	}
+
+	public int end(int i)
+	{
+		checkIndex(i);
+		return this.end[i];
+	}
+
+	public void add(int beginSpace, int begin, int end)
+	{
+		if (this.size == this.begin.length) {
+			int capacity = this.size * 2;
+			this.beginSpace = Arrays.copyOf(this.beginSpace, capacity);
+			this.begin = Arrays.copyOf(this.begin, capacity);
+			this.end = Arrays.copyOf(this.end, capacity); }
+		this.beginSpace[this.size] = beginSpace;
+		this.begin[this.size] = begin;
+		this.end[this.size] = end;
+		this.size++;
+	}
+
+	/**
+	 * Add all tokens of another buffer, with the same offsets.
+	 */
+	void addAll(TokenBuffer other)
+	{
+		int size = this.size + other.size;
+		if (size > this.begin.length) {
+			int capacity = Math.max(size, this.size * 2);
+			this.beginSpace = Arrays.copyOf(this.beginSpace, capacity);
+			this.begin = Arrays.copyOf(this.begin, capacity);
+			this.end = Arrays.copyOf(this.end, capacity); }
+		System.arraycopy(other.beginSpace, 0, this.beginSpace, this.size, other.size);
+		System.arraycopy(other.begin, 0, this.begin, this.size, other.size);
+		System.arraycopy(other.end, 0, this.end, this.size, other.size);
+		this.size = size;
+	}
+
+	public void clear()
+	{
+		this.size = 0;
+	}
+
+	/**
+	 * Make room for at least capacity tokens, keeping the tokens there are.
+	 */
+	void ensureCapacity(int capacity)
+	{
+		if (capacity > this.begin.length) {
+			this.beginSpace = Arrays.copyOf(this.beginSpace, capacity);
+			this.begin = Arrays.copyOf(this.begin, capacity);
+			this.end = Arrays.copyOf(this.end, capacity); }
+	}
+
+	int capacity()
+	{
+		return this.begin.length;
+	}
+
+	/**
+	 * Drop the first count tokens and move the offsets of the remaining tokens
+	 * shift characters to the left, for when the start of the text is dropped
+	 * as well.
+	 */
+	void removeFirst(int count, int shift)
+	{
+		if (count < 0 || count > this.size)
+			throw new IndexOutOfBoundsException("Token count: " + count);
+		int remaining = this.size - count;
+		for (int i = 0; i < remaining; i++) {
+			this.beginSpace[i] = this.beginSpace[i + count] - shift;
+			this.begin[i] = this.begin[i + count] - shift;
+			this.end[i] = this.end[i + count] - shift; }
+		this.size = remaining;
+	}
+
+	/**
+	 * Create a Token for token i, the token is not linked to its neighbours.
+	 *
+	 * @param text the text the offsets point into
+	 * @param i
+	 * @return a new Token
+	 */
+	public Token token(CharSequence text, int i)
+	{
+		checkIndex(i);
+		String tokenText = text.subSequence(this.begin[i], this.end[i]).toString();
+		return new Token(tokenText, this.beginSpace[i], this.begin[i], this.end[i]);
+	}
+
+	/**
+	 * Returns true if token i ends a sentence. This is the same test as
+	 * Token.isEOS(), with token i + 1 as the next token, and it does not
+	 * allocate.
+	 *
+	 * @param text the text the offsets point into
+	 * @param i
+	 * @return true if token i is the last token of a sentence
+	 */
+	public boolean isEOS(CharSequence text, int i)
+	{
+		checkIndex(i);
+		int b = this.begin[i];
+		int e = this.end[i];
+		if (e - b == 1 && CharClass.isEOS(text.charAt(b)))
+			return true;
+		return i + 1 < this.size
+				&& Abbreviations.END_ABBREV_LEXICON.contains(text, b, e)
+				&& Token.INITIAL_LEXICON.contains(text, this.begin[i + 1], this.end[i + 1]);
+	}
+
+	private void checkIndex(int i)
+	{
+		if (i < 0 || i >= this.size)
+			throw new IndexOutOfBoundsException("Token index: " + i);
+	}
+
+}
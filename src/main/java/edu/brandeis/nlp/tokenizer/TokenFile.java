@@ -0,0 +1,458 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Token files, in the text format with a "begin end text" or "beginSpace begin
+ * end text" line per token, and in a binary format that is much faster to read.
+ *
+ * A binary token file starts with a 16 byte header: the magic bytes "BTOK", a
+ * version byte, three zero bytes and the number of tokens as a big-endian long.
+ * Then for each token, in text order, come the distance from the end of the
+ * previous token (or from 0) to the begin of the token and the length of the
+ * token, both as unsigned LEB128 varints. Most tokens take two bytes. The binary
+ * format has no token text and no beginSpace, neither is used for splitting.
+ *
+ * Binary files are read through memory mapped windows and decoded straight into
+ * offsets, without creating strings or tokens. The records without the header
+ * can also be encoded and decoded in memory, see encode() and decode().
+ */
+public final class TokenFile {
+
+	static final byte[] MAGIC = { 'B', 'T', 'O', 'K' };
+	static final byte VERSION = 1;
+	static final int HEADER = 16;
+
+	/** Number of bytes mapped at a time when reading a binary file. */
+	static final int WINDOW = 1 << 24;
+
+	/** The longest record, two varints of a long. */
+	private static final int MAX_RECORD = 20;
+
+	private TokenFile() { }
+
+	/**
+	 * Convert a token file from the text format to the binary format.
+	 *
+	 * USAGE: java -cp ... edu.brandeis.nlp.tokenizer.TokenFile INPUT.tok OUTPUT.btok
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 2) {
+			System.out.println("\nUSAGE:\n");
+			System.out.println("$ java -cp JAR edu.brandeis.nlp.tokenizer.TokenFile INPUT.tok OUTPUT.btok\n");
+			System.exit(1); }
+		long count = convert(Paths.get(args[0]), Paths.get(args[1]));
+		System.out.println(String.format("Wrote %d tokens to %s", count, args[1]));
+	}
+
+	/**
+	 * Return true if the file is a binary token file.
+	 */
+	public static boolean isBinary(Path path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return isBinary(channel); }
+	}
+
+	/**
+	 * Read the token offsets from a token file in either format.
+	 *
+	 * @param path the token file
+	 * @return begin and end offsets of the tokens, as taken by SentenceSplitter.split()
+	 * @throws IOException if the file cannot be read or is not a token file
+	 */
+	public static int[] read(Path path) throws IOException
+	{
+		try (Reader reader = Reader.open(path, WINDOW)) {
+			long count = reader.count();
+			if (count > Integer.MAX_VALUE / 2)
+				throw new IOException("Too many tokens for an array: " + count);
+			int[] offsets = new int[count < 0 ? 1024 : (int) count * 2];
+			int size = 0;
+			while (reader.next()) {
+				if (reader.end > Integer.MAX_VALUE)
+					throw new IOException("Token offset too large for an array: " + reader.end);
+				if (size == offsets.length) {
+					if (size >= Integer.MAX_VALUE / 2 - 8)
+						throw new IOException("Too many tokens for an array");
+					offsets = Arrays.copyOf(offsets, size * 2); }
+				offsets[size++] = (int) reader.begin;
+				offsets[size++] = (int) reader.end; }
+			return size == offsets.length ? offsets : Arrays.copyOf(offsets, size); }
+	}
+
+	/**
+	 * Write token offsets to a binary token file.
+	 *
+	 * @param path the file, replaced if it exists
+	 * @param offsets begin and end offsets of the tokens, in text order
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the tokens overlap or are out of order
+	 */
+	public static void write(Path path, int[] offsets) throws IOException
+	{
+		if (offsets.length % 2 != 0)
+			throw new IllegalArgumentException("Token offsets must come in pairs");
+		try (Writer writer = new Writer(path)) {
+			for (int i = 0; i < offsets.length; i += 2)
+				writer.add(offsets[i], offsets[i + 1]); }
+	}
+
+	/**
+	 * Convert a token file to the binary format. The input may be in either
+	 * format.
+	 *
+	 * @param from the token file to read
+	 * @param to the binary token file to write, replaced if it exists
+	 * @return the number of tokens
+	 * @throws IOException if the input is not a token file
+	 * @throws IllegalArgumentException if the tokens overlap or are out of order
+	 */
+	public static long convert(Path from, Path to) throws IOException
+	{
+		try (Reader reader = Reader.open(from, WINDOW);
+			 Writer writer = new Writer(to)) {
+			while (reader.next())
+				writer.add(reader.begin, reader.end);
+			return writer.count; }
+	}
+
+	/**
+	 * Encode token offsets as the records of a binary token file, without the
+	 * header.
+	 *
+	 * @param offsets begin and end offsets of the tokens, in text order
+	 * @return the records
+	 * @throws IllegalArgumentException if the tokens overlap or are out of order
+	 */
+	public static byte[] encode(int[] offsets)
+	{
+		if (offsets.length % 2 != 0)
+			throw new IllegalArgumentException("Token offsets must come in pairs");
+		int size = 0;
+		long previous = 0;
+		for (int i = 0; i < offsets.length; i += 2) {
+			check(previous, offsets[i], offsets[i + 1]);
+			size += length(offsets[i] - previous) + length(offsets[i + 1] - offsets[i]);
+			previous = offsets[i + 1]; }
+		ByteBuffer records = ByteBuffer.allocate(size);
+		previous = 0;
+		for (int i = 0; i < offsets.length; i += 2) {
+			putRecord(records, previous, offsets[i], offsets[i + 1]);
+			previous = offsets[i + 1]; }
+		return records.array();
+	}
+
+	/**
+	 * Decode the records of encode().
+	 *
+	 * @param records the records, without a header
+	 * @return begin and end offsets of the tokens
+	 * @throws IOException if the bytes are not records of offsets that fit in an int
+	 */
+	public static int[] decode(byte[] records) throws IOException
+	{
+		// every varint ends in a byte without the high bit
+		int values = 0;
+		for (byte b : records) {
+			if (b >= 0)
+				values++; }
+		if (values % 2 != 0 || (records.length > 0 && records[records.length - 1] < 0))
+			throw new IOException("Truncated token records");
+		int[] offsets = new int[values];
+		ByteBuffer bytes = ByteBuffer.wrap(records);
+		long previous = 0;
+		for (int i = 0; i < values; i++) {
+			// begins follow the previous end, ends follow their begin
+			long value = getVarint(bytes);
+			if (value > Integer.MAX_VALUE - previous)
+				throw new IOException("Token offset too large for an array: " + (previous + value));
+			previous += value;
+			offsets[i] = (int) previous; }
+		return offsets;
+	}
+
+	private static void check(long previous, long begin, long end)
+	{
+		if (begin < previous || end < begin)
+			throw new IllegalArgumentException(String.format(
+					"Token <%d %d> overlaps or precedes the previous token", begin, end));
+	}
+
+	/**
+	 * Put the record of a token that follows a token ending at previous.
+	 */
+	private static void putRecord(ByteBuffer buffer, long previous, long begin, long end)
+	{
+		putVarint(buffer, begin - previous);
+		putVarint(buffer, end - begin);
+	}
+
+	private static void putVarint(ByteBuffer buffer, long value)
+	{
+		while ((value & ~0x7fL) != 0) {
+			buffer.put((byte) (value & 0x7f | 0x80));
+			value >>>= 7; }
+		buffer.put((byte) value);
+	}
+
+	private static long getVarint(ByteBuffer buffer) throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!buffer.hasRemaining())
+				throw new IOException("Truncated token records");
+			byte b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0)
+				return value; }
+		throw new IOException("Corrupt token records");
+	}
+
+	private static int length(long value)
+	{
+		int length = 1;
+		while ((value >>>= 7) != 0)
+			length++;
+		return length;
+	}
+
+	private static boolean isBinary(FileChannel channel) throws IOException
+	{
+		if (channel.size() < HEADER)
+			return false;
+		ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+		while (magic.hasRemaining() && channel.read(magic, magic.position()) >= 0) { }
+		return Arrays.equals(magic.array(), MAGIC);
+	}
+
+	/**
+	 * Reads the tokens of a token file one at a time.
+	 */
+	abstract static class Reader implements Closeable {
+
+		long begin;
+		long end;
+
+		/**
+		 * Open a token file in either format.
+		 *
+		 * @param window number of bytes mapped at a time for a binary file
+		 */
+		static Reader open(Path path, int window) throws IOException
+		{
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+			try {
+				if (isBinary(channel))
+					return new BinaryReader(channel, window);
+				channel.close();
+				return new TextReader(Files.newBufferedReader(path, StandardCharsets.UTF_8)); }
+			catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e; }
+		}
+
+		/**
+		 * The number of tokens in the file, or -1 if it is not known up front.
+		 */
+		abstract long count();
+
+		/**
+		 * Read the next token into begin and end.
+		 *
+		 * @return false at the end of the file
+		 */
+		abstract boolean next() throws IOException;
+	}
+
+	private static final class TextReader extends Reader {
+
+		private final BufferedReader reader;
+		private final long[] fields = new long[3];
+
+		TextReader(BufferedReader reader)
+		{
+			this.reader = reader;
+		}
+
+		@Override
+		long count()
+		{
+			return -1;
+		}
+
+		@Override
+		boolean next() throws IOException
+		{
+			String line;
+			do {
+				line = this.reader.readLine();
+				if (line == null)
+					return false; }
+			while (line.isEmpty());
+			// the offsets are the leading fields, the last field is the text
+			int count = 0;
+			int start = 0;
+			int space;
+			while ((space = line.indexOf(' ', start)) >= 0 && count < this.fields.length) {
+				this.fields[count++] = parse(line, start, space);
+				start = space + 1; }
+			if (count < 2)
+				throw new IOException("Not a token line: " + line);
+			if (count == 3) {
+				this.begin = this.fields[1];
+				this.end = this.fields[2]; }
+			else {
+				this.begin = this.fields[0];
+				this.end = this.fields[1]; }
+			return true;
+		}
+
+		private static long parse(String line, int start, int end) throws IOException
+		{
+			if (start == end)
+				throw new IOException("Not a token line: " + line);
+			long value = 0;
+			for (int i = start; i < end; i++) {
+				char c = line.charAt(i);
+				if (c < '0' || c > '9')
+					throw new IOException("Not a token line: " + line);
+				value = value * 10 + (c - '0'); }
+			return value;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			this.reader.close();
+		}
+	}
+
+	private static final class BinaryReader extends Reader {
+
+		private final FileChannel channel;
+		private final long size;
+		private final int window;
+		private final long count;
+		private MappedByteBuffer bytes;
+		/** File offset of the start of the mapped window. */
+		private long position;
+		private long read = 0;
+
+		BinaryReader(FileChannel channel, int window) throws IOException
+		{
+			if (window < HEADER + MAX_RECORD)
+				throw new IllegalArgumentException("Window too small: " + window);
+			this.channel = channel;
+			this.size = channel.size();
+			this.window = window;
+			map(0);
+			this.bytes.position(MAGIC.length);
+			byte version = this.bytes.get();
+			if (version != VERSION)
+				throw new IOException("Unsupported binary token file version: " + version);
+			this.bytes.position(8);
+			this.count = this.bytes.getLong();
+			// every record takes at least two bytes, a larger count is not to be
+			// trusted for sizing the offsets
+			if (this.count < 0 || this.count > (this.size - HEADER) / 2)
+				throw new IOException("Corrupt binary token file header, " + this.count
+						+ " tokens in " + this.size + " bytes");
+		}
+
+		@Override
+		long count()
+		{
+			return this.count;
+		}
+
+		@Override
+		boolean next() throws IOException
+		{
+			if (this.read == this.count)
+				return false;
+			if (this.bytes.remaining() < MAX_RECORD && this.position + this.bytes.limit() < this.size)
+				map(this.position + this.bytes.position());
+			this.begin = this.end + getVarint(this.bytes);
+			this.end = this.begin + getVarint(this.bytes);
+			this.read++;
+			return true;
+		}
+
+		private void map(long position) throws IOException
+		{
+			long length = Math.min(this.window, this.size - position);
+			this.bytes = this.channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			this.position = position;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Writes a binary token file, the token count in the header is filled in
+	 * when the writer is closed.
+	 */
+	private static final class Writer implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		private long previous = 0;
+		long count = 0;
+
+		Writer(Path path) throws IOException
+		{
+			this.channel = FileChannel.open(path, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			this.buffer.put(MAGIC).put(VERSION).put(new byte[3]).putLong(0);
+		}
+
+		void add(long begin, long end) throws IOException
+		{
+			check(this.previous, begin, end);
+			if (this.buffer.remaining() < MAX_RECORD)
+				flush();
+			putRecord(this.buffer, this.previous, begin, end);
+			this.previous = end;
+			this.count++;
+		}
+
+		private void flush() throws IOException
+		{
+			this.buffer.flip();
+			while (this.buffer.hasRemaining())
+				this.channel.write(this.buffer);
+			this.buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try {
+				flush();
+				ByteBuffer header = ByteBuffer.allocate(8).putLong(0, this.count);
+				while (header.hasRemaining())
+					this.channel.write(header, 8 + header.position()); }
+			finally {
+				this.channel.close(); }
+		}
+	}
+
+}
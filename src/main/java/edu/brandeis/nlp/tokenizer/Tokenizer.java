@@ -14,9 +14,18 @@ import java.util.List;
 import java.util.Scanner;
 
 
+/**
+ * Tokenizer and sentence splitter that keeps the input and the result of the
+ * last call in its fields. The work is done by a SentenceSplitter, use that
+ * class directly when one instance needs to be shared between threads.
+ */
 public class Tokenizer {
 
-	private static final Boolean DEBUG = false;
+	/**
+	 * The engine that does the actual work, it is stateless and shared by all
+	 * instances.
+	 */
+	private static final SentenceSplitter ENGINE = new SentenceSplitter();
 
 	public String filename;
 	public String text;
@@ -110,29 +119,58 @@ public class Tokenizer {
         return this.result;
     }
 
+	/**
+	 * Tokenize and split a file of any size. The file is read in memory mapped
+	 * windows and the sentences are handed to the sink as they are found, no
+	 * TokenizedText is created and the fields of this Tokenizer are not set.
+	 *
+	 * @param fname The input file, a UTF-8 text.
+	 * @param sink receives the sentences
+	 * @throws IOException
+	 */
+	public final void tokenizeFile(File fname, IncrementalSplitter.SentenceSink sink) throws IOException
+	{
+		new MappedCorpus().tokenize(fname.toPath(), sink);
+	}
+
+	/**
+	 * Split a file of any size given a file with its token offsets, in the same
+	 * way as tokenizeFile(File, SentenceSink).
+	 *
+	 * @param fname The input file, a UTF-8 text.
+	 * @param tokens The token file, with a line for each token or binary (see
+	 * TokenFile).
+	 * @param sink receives the sentences
+	 * @throws IOException
+	 */
+	public final void splitFile(File fname, File tokens, IncrementalSplitter.SentenceSink sink) throws IOException
+	{
+		new MappedCorpus().split(fname.toPath(), tokens.toPath(), sink);
+	}
+
     public final void tokenize()
 	{
-		this.tokens = new ArrayList<>();
-		this.sentences = new ArrayList<>();
-        this.result = new TokenizedText();
-        this.result.startTime = System.nanoTime();
-		splitTextIntoTokens();
-		linkTokens();
-		splitPunctuations();
-		splitSentences();
-        this.result.sentences = this.sentences;
-        this.result.tokens = this.tokens;
+        long startTime = System.nanoTime();
+        SplitResult split = ENGINE.tokenize(this.text);
+        this.result = split.toTokenizedText();
+        this.result.startTime = startTime;
+        this.sentences = this.result.sentences;
+        this.tokens = this.result.tokens;
         this.result.endTime = System.nanoTime();
     }
 
     public final void split()
 	{
-        this.result = new TokenizedText();
-        this.result.startTime = System.nanoTime();
-		this.sentences = new ArrayList<>();
-        splitSentences();
-        this.result.sentences = this.sentences;
-        this.result.tokens = this.tokens;
+        long startTime = System.nanoTime();
+        int[] offsets = new int[this.tokens.size() * 2];
+        for (int i = 0; i < this.tokens.size(); i++) {
+            offsets[2 * i] = this.tokens.get(i).beginToken;
+            offsets[2 * i + 1] = this.tokens.get(i).endToken; }
+        SplitResult split = ENGINE.split(this.text, offsets);
+        SentenceSplitter.linkTokens(this.tokens);
+        this.result = split.toTokenizedText(this.tokens);
+        this.result.startTime = startTime;
+        this.sentences = this.result.sentences;
         this.result.endTime = System.nanoTime();
     }
 
@@ -141,60 +179,6 @@ public class Tokenizer {
         this.result.printSentences();
     }
 
-	private void splitTextIntoTokens()
-	{
-		int offset = 0;
-		while (offset < this.length) {
-			Token token = slurpToken(offset);
-			// this prevents adding a token with just leading whitespace, which
-			// happens when the text ends with some white space
-			if (token.length > 0)
-				this.tokens.add(token);
-			offset = token.endToken; }
-	}
-
-	/**
-	 * Consume a token starting at the given offset.
-	 *
-	 * @param offset offset of where to start in this.text
-	 * @return a Token object that has the beginning and ending offsets of the
-	 * token as well as the text of the token and an indication of where leading
-	 * whitespace started
-	 */
-	private Token slurpToken(int offset)
-	{
-		int beginSpace = offset;
-		offset = consumeSpace(offset);
-		int beginToken = offset;
-		StringBuilder token = new StringBuilder();
-		while (offset < this.length) {
-			char c = this.text.charAt(offset);
-			if (Character.isWhitespace(c))
-				break;
-			token.append(c);
-			offset++;
-		}
-		return new Token(token.toString(), beginSpace, beginToken, offset);
-	}
-
-	/**
-	 * Consume consecutive white space characters in the text starting from the
-	 * given offset.
-	 *
-	 * @param offset
-	 * @return the offset immediately after the final whitespace found
-	 */
-	private int consumeSpace(int offset)
-	{
-		while (offset < this.length) {
-			char c = this.text.charAt(offset);
-			if (Character.isWhitespace(c))
-				offset++;
-			else
-				return offset; }
-		return offset;
-	}
-
 	private void readResource() throws IOException
 	{
 		// URL resource = this.getClass().getResource("/");
@@ -222,13 +206,21 @@ public class Tokenizer {
     }
 
 	/**
-	 * Read tokens from a file and add them to the tokens variable.
+	 * Read tokens from a file and add them to the tokens variable. A binary
+	 * token file has no token text, it is taken from this.text, which must have
+	 * been read first.
 	 *
 	 * @param tokens the file to read from
 	 * @throws IOException
 	 */
-	private void readTokens(File tokens) throws IOException
-	{
+	void readTokens(File tokens) throws IOException
+	{
+		if (TokenFile.isBinary(tokens.toPath())) {
+			int[] offsets = TokenFile.read(tokens.toPath());
+			this.tokens = new ArrayList<>(offsets.length / 2);
+			for (int i = 0; i < offsets.length; i += 2)
+				this.tokens.add(new Token(this.text.substring(offsets[i], offsets[i + 1]), offsets[i], offsets[i + 1]));
+			return; }
 		String path = tokens.getPath();
 		List<String> toks = Files.readAllLines(Paths.get(path), Charset.forName("UTF-8"));
 		this.tokens = new ArrayList<>();
@@ -237,63 +229,6 @@ public class Tokenizer {
 			Token token = new Token(fields);
 			//System.out.println(token);
 			this.tokens.add(token); }
-		linkTokens();
 	}
 
-	private void linkTokens()
-	{
-		//this.firstToken = this.tokens.get(0);
-		for (int i=0 ; i < this.tokens.size() - 1 ; i++) {
-			Token t1 = this.tokens.get(i);
-			Token t2 = this.tokens.get(i+1);
-			t1.next = t2;
-			t2.previous = t1; }
-	}
-
-	private void splitPunctuations()
-	{
-		ArrayList<Token> newTokens = new ArrayList<>();
-		ArrayList<Token> splitToken;
-		for (Token tok : this.tokens) {
-			splitToken = tok.splitPunctuations();
-			if (splitToken == null)
-				newTokens.add(tok);
-			else
-				newTokens.addAll(splitToken); }
-		this.tokens = newTokens;
-		linkTokens();
-		for (Token tok : newTokens)
-			debug(tok.toString());
-	}
-
-	private void debug(String text)
-	{
-		if (DEBUG)
-			System.out.println(text);
-	}
-
-	private void splitSentences()
-	{
-		Sentence sentence = new Sentence();
-		this.sentences.add(sentence);
-		for (Token tok : this.tokens) {
-			sentence.add(tok);
-			if (tok.isEOS()) {
-				sentence = new Sentence();
-				this.sentences.add(sentence); }}
-        // add begin and end character offsets
-        for (Sentence sent : this.sentences)
-            sent.setOffsets();
-        // filter out sentences without tokens
-      	ArrayList<Sentence> newSentences = new ArrayList<>();
-        for (Sentence sent : this.sentences) {
-            if (sent.length > 0)
-                newSentences.add(sent); }
-        this.sentences = newSentences;
-        //this.sentences = (ArrayList) this.sentences.stream()
-        //        .filter(s -> s.length == 0)
-        //        .collect(Collectors.toList());
-	}
-
-
 }
@@ -0,0 +1,50 @@
+package edu.brandeis.nlp.tokenizer;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * WhitespaceMask on the Vector API, testing as many characters at once as fit
+ * in the widest vector of the processor, 16 with AVX2 and 32 with AVX-512.
+ *
+ * The ASCII whitespace characters are the ranges 9 to 13 and 28 to 32, which
+ * are tested with four compares per vector. A vector with characters beyond
+ * ASCII has those tested one at a time with Character.isWhitespace(), like
+ * CharClass does. Only loaded by WhitespaceMask when jdk.incubator.vector is
+ * present.
+ */
+final class VectorWhitespaceMask extends WhitespaceMask {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	VectorWhitespaceMask()
+	{
+		if (64 % SPECIES.length() != 0)
+			throw new IllegalStateException("Unsupported vector length: " + SPECIES.length());
+	}
+
+	@Override
+	long mask(char[] chars, int offset)
+	{
+		long bits = 0;
+		for (int i = 0; i < 64; i += SPECIES.length()) {
+			ShortVector v = ShortVector.fromCharArray(SPECIES, chars, offset + i);
+			VectorMask<Short> whitespace = v.compare(VectorOperators.GE, (short) 9)
+					.and(v.compare(VectorOperators.LE, (short) 13))
+					.or(v.compare(VectorOperators.GE, (short) 28).and(v.compare(VectorOperators.LE, (short) 32)));
+			long lanes = whitespace.toLong();
+			// characters from 128 up, negative as shorts from 0x8000 up
+			long other = v.compare(VectorOperators.UNSIGNED_GE, (short) 128).toLong();
+			while (other != 0) {
+				int lane = Long.numberOfTrailingZeros(other);
+				if (Character.isWhitespace(chars[offset + i + lane]))
+					lanes |= 1L << lane;
+				other &= other - 1; }
+			bits |= lanes << i; }
+		return bits;
+	}
+
+}
@@ -0,0 +1,81 @@
+package edu.brandeis.nlp.tokenizer;
+
+import java.util.Arrays;
+
+
+/**
+ * Marks the whitespace of a text as the bits of an array of longs, so that the
+ * tokenizer can find the runs of whitespace and non-whitespace a word at a
+ * time instead of testing every character.
+ *
+ * INSTANCE tests 16 or 32 characters at once with the Vector API of the
+ * incubating jdk.incubator.vector module. It is only there when the class was
+ * compiled, with the vector profile of the build, and the module is there,
+ * which takes "--add-modules jdk.incubator.vector" on the java command line.
+ * It can be turned off with -Dedu.brandeis.nlp.tokenizer.vector=false.
+ * Without it INSTANCE is null and the tokenizer uses the scalar loops of
+ * CharClass. The masks are the same either way: a character is whitespace if
+ * CharClass.isWhitespace() says so.
+ */
+abstract class WhitespaceMask {
+
+	/** The vector implementation, or null if the Vector API is not there. */
+	static final WhitespaceMask INSTANCE = load();
+
+	/** Scalar implementation, for testing the vector implementation against. */
+	static final WhitespaceMask SCALAR = new WhitespaceMask() {
+		@Override
+		long mask(char[] chars, int offset)
+		{
+			long bits = 0;
+			for (int i = 0; i < 64; i++) {
+				if (CharClass.isWhitespace(chars[offset + i]))
+					bits |= 1L << i; }
+			return bits;
+		} };
+
+	/** Number of characters copied out of the text at a time. */
+	private static final int BUFFER = 1 << 12;
+
+	private static WhitespaceMask load()
+	{
+		if (!Boolean.parseBoolean(System.getProperty("edu.brandeis.nlp.tokenizer.vector", "true"))
+				|| !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return null;
+		try {
+			// loaded by name, so that nothing refers to the class when the
+			// module is not there
+			return (WhitespaceMask) Class.forName("edu.brandeis.nlp.tokenizer.VectorWhitespaceMask")
+					.getDeclaredConstructor().newInstance(); }
+		catch (ReflectiveOperationException | LinkageError e) {
+			return null; }
+	}
+
+	/**
+	 * Return a mask with bit i set if chars[offset + i] is whitespace, for i
+	 * from 0 to 63.
+	 */
+	abstract long mask(char[] chars, int offset);
+
+	/**
+	 * Return the whitespace of text between from and to, with bit i % 64 of
+	 * word i / 64 set if the character at from + i is whitespace. Bits past
+	 * to are set as well, so that every token is followed by a set bit.
+	 */
+	long[] masks(String text, int from, int to)
+	{
+		long[] masks = new long[(to - from) / 64 + 1];
+		char[] chars = new char[BUFFER];
+		for (int start = from, word = 0; start < to; start += BUFFER) {
+			int length = Math.min(BUFFER, to - start);
+			text.getChars(start, start + length, chars, 0);
+			int end = (length + 63) & ~63;
+			Arrays.fill(chars, length, end, ' ');
+			for (int offset = 0; offset < end; offset += 64)
+				masks[word++] = mask(chars, offset); }
+		int last = (to - from) % 64;
+		masks[(to - from) / 64] |= -1L << last;
+		return masks;
+	}
+
+}
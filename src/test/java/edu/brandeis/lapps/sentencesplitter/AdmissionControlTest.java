@@ -0,0 +1,242 @@
+package edu.brandeis.lapps.sentencesplitter;
+
+import org.junit.Assert;
+import org.lappsgrid.serialization.Data;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+public class AdmissionControlTest {
+
+    @org.junit.Test
+    public void testShedWhenQueueFull() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 0, 1000);
+        long rejected = SplitterMetrics.get().getRejectedDocuments();
+        Assert.assertTrue(admission.acquire(10));
+        Assert.assertFalse(admission.acquire(10));
+        Assert.assertEquals(rejected + 1, SplitterMetrics.get().getRejectedDocuments());
+        admission.release(10);
+        Assert.assertTrue(admission.acquire(10));
+        admission.release(10);
+    }
+
+    @org.junit.Test
+    public void testShedAfterTimeout() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 5, 50);
+        Assert.assertTrue(admission.acquire(10));
+        long start = System.nanoTime();
+        Assert.assertFalse(admission.acquire(10));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        admission.release(10);
+    }
+
+    @org.junit.Test
+    public void testCharacterLimit() throws Exception {
+        AdmissionControl admission = new AdmissionControl(0, 100, 0, 0);
+        Assert.assertTrue(admission.acquire(60));
+        Assert.assertTrue(admission.acquire(40));
+        Assert.assertFalse(admission.acquire(1));
+        admission.release(60);
+        admission.release(40);
+        // larger than the limit, but alone
+        Assert.assertTrue(admission.acquire(1000));
+        Assert.assertFalse(admission.acquire(1));
+        admission.release(1000);
+    }
+
+    @org.junit.Test
+    public void testWaitersAreAdmittedInOrder() throws Exception {
+        AdmissionControl admission = new AdmissionControl(0, 100, 10, 5000);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Assert.assertTrue(admission.acquire(100));
+            // the large document waits first, the small one may not pass it
+            Future<Boolean> large = executor.submit(() -> admission.acquire(80));
+            waitForQueue(1);
+            Future<Boolean> small = executor.submit(() -> admission.acquire(30));
+            waitForQueue(2);
+            admission.release(100);
+            Assert.assertTrue(large.get(5, TimeUnit.SECONDS));
+            Assert.assertFalse(small.isDone());
+            admission.release(80);
+            Assert.assertTrue(small.get(5, TimeUnit.SECONDS));
+            admission.release(30);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testReconfigureKeepsDocumentsInFlight() throws Exception {
+        AdmissionControl admission = new AdmissionControl(0, 0, 0, 0);
+        Assert.assertTrue(admission.acquire(10));
+        Assert.assertTrue(admission.acquire(10));
+        // both documents still count against the new limit
+        admission.configure(2, 0, 0, 0);
+        Assert.assertFalse(admission.acquire(10));
+        admission.release(10);
+        Assert.assertTrue(admission.acquire(10));
+        Assert.assertFalse(admission.acquire(10));
+        admission.configure(3, 0, 0, 0);
+        Assert.assertTrue(admission.acquire(10));
+        for (int i = 0; i < 3; i++)
+            admission.release(10);
+    }
+
+    @org.junit.Test
+    public void testReconfigureAdmitsWaiters() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 10, 5000);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Assert.assertTrue(admission.acquire(10));
+            Future<Boolean> waiting = executor.submit(() -> admission.acquire(10));
+            waitForQueue(1);
+            admission.configure(2, 0, 10, 5000);
+            Assert.assertTrue(waiting.get(5, TimeUnit.SECONDS));
+            admission.release(10);
+            admission.release(10);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testInterruptedWaitIsRejected() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 10, 60000);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Assert.assertTrue(admission.acquire(10));
+            long rejected = SplitterMetrics.get().getRejectedDocuments();
+            Future<Boolean> waiting = executor.submit(() -> admission.acquire(10));
+            waitForQueue(1);
+            waiting.cancel(true);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (SplitterMetrics.get().getRejectedDocuments() == rejected && System.nanoTime() < deadline)
+                Thread.sleep(1);
+            Assert.assertEquals(rejected + 1, SplitterMetrics.get().getRejectedDocuments());
+            // the interrupted document did not take the place of the next one
+            admission.release(10);
+            Assert.assertTrue(admission.acquire(10));
+            admission.release(10);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testSplitterSheds() throws Exception {
+        Splitter splitter = new Splitter();
+        splitter.setMaxInFlightDocuments(1);
+        splitter.setAdmissionQueue(0);
+        splitter.setTokenizeFallback(true);
+        String input = new Data<>(Uri.TEXT, "Hello there. How are you?").asJson();
+        Splitter unlimited = new Splitter();
+        unlimited.setTokenizeFallback(true);
+        String expected = unlimited.execute(input);
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        StringWriter result = new StringWriter();
+        Writer blocking = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) throws IOException {
+                writing.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                result.write(chars, offset, length);
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> {
+                splitter.execute(input, blocking);
+                return null;
+            });
+            Assert.assertTrue(writing.await(5, TimeUnit.SECONDS));
+            String shed = splitter.execute(input);
+            Assert.assertTrue(shed.contains(Uri.ERROR));
+            Assert.assertTrue(shed.contains(Splitter.OVERLOADED));
+            proceed.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(expected, result.toString());
+            Assert.assertEquals(expected, splitter.execute(input));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testCancelledWhileQueued() throws Exception {
+        Splitter splitter = new Splitter();
+        splitter.setMaxInFlightDocuments(1);
+        splitter.setAdmissionTimeout(60000);
+        splitter.setTokenizeFallback(true);
+        String input = new Data<>(Uri.TEXT, "Hello there. How are you?").asJson();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        Writer blocking = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) throws IOException {
+                writing.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        SplitterMetrics metrics = SplitterMetrics.get();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> {
+                splitter.execute(input, blocking);
+                return null;
+            });
+            Assert.assertTrue(writing.await(5, TimeUnit.SECONDS));
+            long cancelled = metrics.getCancelledDocuments();
+            long errors = metrics.getErrors();
+            CompletableFuture<String> waiting = splitter.executeAsync(input).toCompletableFuture();
+            waitForQueue(1);
+            Assert.assertTrue(waiting.cancel(true));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (metrics.getCancelledDocuments() == cancelled && System.nanoTime() < deadline)
+                Thread.sleep(1);
+            Assert.assertEquals(cancelled + 1, metrics.getCancelledDocuments());
+            Assert.assertEquals(errors, metrics.getErrors());
+            proceed.countDown();
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForQueue(long depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (SplitterMetrics.get().getQueuedDocuments() < depth && System.nanoTime() < deadline)
+            Thread.sleep(1);
+    }
+}
@@ -0,0 +1,88 @@
+package edu.brandeis.lapps.sentencesplitter;
+
+import org.junit.Assert;
+import org.lappsgrid.serialization.Data;
+import org.lappsgrid.serialization.Serializer;
+import org.lappsgrid.serialization.lif.Container;
+import org.lappsgrid.serialization.lif.View;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+public class PackedTokensTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London.";
+
+    @org.junit.Test
+    public void testRoundTrip() throws IOException {
+        int[] offsets = { 0, 1, 200, 70000, 70000, 70001, 5000000, Integer.MAX_VALUE };
+        String packed = PackedTokens.encode(offsets);
+        Assert.assertArrayEquals(offsets, PackedTokens.decode(packed));
+        Assert.assertEquals("", PackedTokens.encode(new int[0]));
+        Assert.assertEquals(0, PackedTokens.decode("").length);
+        // one byte per varint for short tokens with short gaps, 6 bytes of base64
+        Assert.assertEquals(8, PackedTokens.encode(new int[] { 0, 4, 5, 7, 8, 11 }).length());
+    }
+
+    @org.junit.Test
+    public void testRejectsBadInput() {
+        try {
+            PackedTokens.encode(new int[] { 5, 10, 8, 12 });
+            Assert.fail("overlapping tokens were accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        for (String packed : new String[] { "not base64!", "gA==", "AQ==", "/////w8=" }) {
+            try {
+                PackedTokens.decode(packed);
+                Assert.fail("bad packed tokens were accepted: " + packed);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testSplitterReadsAndWritesPackedTokens() {
+        String input = new Data<>(Uri.TEXT, TEXT).asJson();
+        Splitter splitter = new Splitter();
+        Splitter packing = new Splitter();
+        splitter.setTokenizeFallback(true);
+        packing.setTokenizeFallback(true);
+        packing.setPackedTokens(true);
+        String full = splitter.execute(input);
+        String packed = packing.execute(input);
+        Assert.assertTrue(packed.length() < full.length());
+
+        Container container = new Container((Map) Serializer.parse(packed, Data.class).getPayload());
+        List<View> tokenViews = container.findViewsThatContain(Uri.TOKEN);
+        Assert.assertEquals(1, tokenViews.size());
+        Assert.assertEquals(0, tokenViews.get(0).getAnnotations().size());
+        Assert.assertNotNull(tokenViews.get(0).getMetadata().get(PackedTokens.METADATA));
+
+        // the packed tokens are read back, by both readers, and not tokenized again
+        String expected = sentences(full);
+        splitter.setTokenizeFallback(false);
+        Assert.assertEquals(expected, sentences(splitter.execute(packed)));
+        Assert.assertEquals(1, tokenViews(splitter.execute(packed)).size());
+        splitter.setStreaming(false);
+        Assert.assertEquals(expected, sentences(splitter.execute(packed)));
+        Assert.assertEquals(1, tokenViews(splitter.execute(packed)).size());
+    }
+
+    private static List<View> tokenViews(String json) {
+        return new Container((Map) Serializer.parse(json, Data.class).getPayload()).findViewsThatContain(Uri.TOKEN);
+    }
+
+    private static String sentences(String json) {
+        List<View> views = new Container((Map) Serializer.parse(json, Data.class).getPayload())
+                .findViewsThatContain(Uri.SENTENCE);
+        StringBuilder sentences = new StringBuilder();
+        views.get(views.size() - 1).getAnnotations().forEach(a -> sentences.append(a.getStart()).append(' ')
+                .append(a.getEnd()).append('\n'));
+        return sentences.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package edu.brandeis.lapps.sentencesplitter;
+
+import org.junit.Assert;
+import org.lappsgrid.serialization.Data;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+public class ResultCacheTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London.";
+
+    @org.junit.Test
+    public void testHitGivesSameResult() {
+        Splitter splitter = new Splitter();
+        splitter.setCacheSize(10);
+        splitter.setTokenizeFallback(true);
+        String input = new Data<>(Uri.TEXT, TEXT).asJson();
+        SplitterMetrics metrics = SplitterMetrics.get();
+        long hits = metrics.getCacheHits();
+        long misses = metrics.getCacheMisses();
+        String first = splitter.execute(input);
+        String second = splitter.execute(input);
+        Assert.assertEquals(first, second);
+        Splitter uncached = new Splitter();
+        uncached.setTokenizeFallback(true);
+        Assert.assertEquals(uncached.execute(input), second);
+        Assert.assertEquals(misses + 1, metrics.getCacheMisses());
+        Assert.assertEquals(hits + 1, metrics.getCacheHits());
+    }
+
+    @org.junit.Test
+    public void testKeyCoversTokens() {
+        ResultCache.Key text = ResultCache.key(TEXT, null);
+        Assert.assertEquals(text, ResultCache.key(new String(TEXT.toCharArray()), null));
+        Assert.assertNotEquals(text, ResultCache.key(TEXT, new int[0]));
+        Assert.assertNotEquals(ResultCache.key(TEXT, new int[] {0, 4}), ResultCache.key(TEXT, new int[] {0, 5}));
+        Assert.assertNotEquals(text, ResultCache.key(TEXT + " ", null));
+    }
+
+    @org.junit.Test
+    public void testEvictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2, 1 << 20);
+        SplitOffsets offsets = new SplitOffsets(null, new int[] {0, 1});
+        ResultCache.Key a = ResultCache.key("a", null);
+        ResultCache.Key b = ResultCache.key("b", null);
+        ResultCache.Key c = ResultCache.key("c", null);
+        cache.put(a, offsets);
+        cache.put(b, offsets);
+        Assert.assertNotNull(cache.get(a));
+        cache.put(c, offsets);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(a));
+        Assert.assertNull(cache.get(b));
+    }
+
+    @org.junit.Test
+    public void testMemoryBound() {
+        ResultCache cache = new ResultCache(1000, 10000);
+        for (int i = 0; i < 100; i++)
+            cache.put(ResultCache.key("doc " + i, null), new SplitOffsets(null, new int[200]));
+        Assert.assertTrue(cache.bytes() <= 10000);
+        Assert.assertTrue(cache.size() > 0);
+        // an entry that does not fit at all is not cached
+        cache.put(ResultCache.key("big", null), new SplitOffsets(null, new int[10000]));
+        Assert.assertNull(cache.get(ResultCache.key("big", null)));
+    }
+}
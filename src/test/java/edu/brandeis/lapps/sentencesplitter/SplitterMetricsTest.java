@@ -0,0 +1,58 @@
+package edu.brandeis.lapps.sentencesplitter;
+
+import org.junit.Assert;
+import org.lappsgrid.serialization.Data;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.lappsgrid.discriminator.Discriminators.Uri;
+
+public class SplitterMetricsTest {
+
+    @org.junit.Test
+    public void testCountersThroughJmx() throws Exception {
+        SplitterMetrics metrics = SplitterMetrics.get();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(SplitterMetrics.OBJECT_NAME);
+        long documents = (Long) server.getAttribute(name, "Documents");
+        long errors = metrics.getErrors();
+        long sentences = metrics.getSentences();
+
+        Splitter splitter = new Splitter();
+        splitter.setTokenizeFallback(true);
+        splitter.execute(new Data<>(Uri.TEXT, "Hello there. How are you?").asJson());
+        splitter.execute("not json");
+
+        Assert.assertEquals(documents + 2, (long) (Long) server.getAttribute(name, "Documents"));
+        Assert.assertEquals(errors + 1, metrics.getErrors());
+        Assert.assertEquals(sentences + 2, metrics.getSentences());
+        CompositeData parse = (CompositeData) server.getAttribute(name, "ParseLatency");
+        Assert.assertTrue((Long) parse.get("count") >= 2);
+    }
+
+    @org.junit.Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 1000L);
+        LatencySummary summary = histogram.summary();
+        Assert.assertEquals(1000, summary.getCount());
+        Assert.assertEquals(500.5, summary.getMean(), 0.01);
+        // buckets are an eighth of a power of two wide
+        Assert.assertEquals(500, summary.getP50(), 500 / 8);
+        Assert.assertEquals(990, summary.getP99(), 990 / 8);
+        Assert.assertEquals(1000, summary.getMax());
+    }
+
+    @org.junit.Test
+    public void testBuckets() {
+        for (long value : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE }) {
+            int index = LatencyHistogram.index(value);
+            Assert.assertTrue(value <= LatencyHistogram.highest(index));
+            Assert.assertTrue(index == 0 || value > LatencyHistogram.highest(index - 1));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package edu.brandeis.lapps.sentencesplitter;
+
+import org.junit.Assert;
+import org.lappsgrid.discriminator.Discriminators;
+import org.lappsgrid.serialization.Data;
+import org.lappsgrid.serialization.Serializer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SplitterServerTest {
+
+    private Splitter splitter;
+    private SplitterServer server;
+    private HttpClient client;
+    private String base;
+
+    @org.junit.Before
+    public void setUp() throws IOException {
+        splitter = new Splitter();
+        splitter.setTokenizeFallback(true);
+        server = new SplitterServer(splitter, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @org.junit.After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @org.junit.Test
+    public void testMetadata() throws Exception {
+        HttpResponse<String> response = get("/metadata");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(splitter.getMetadata(), response.body());
+        Assert.assertEquals(200, get("/health").statusCode());
+        Assert.assertEquals(404, get("/nothing").statusCode());
+    }
+
+    @org.junit.Test
+    public void testExecute() throws Exception {
+        String input = new Data<>(Discriminators.Uri.TEXT, "Mr. Smith is here. Dr. Who is not.").asJson();
+        HttpResponse<String> response = post("/execute", input);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(splitter.execute(input), response.body());
+        Assert.assertEquals(405, get("/execute").statusCode());
+
+        String batch = "[" + input + "," + input + "]";
+        response = post("/batch", batch);
+        Assert.assertEquals(splitter.executeBatch(batch), response.body());
+    }
+
+    @org.junit.Test
+    public void testFailingDocument() throws Exception {
+        AtomicBoolean armed = new AtomicBoolean();
+        Splitter failing = new Splitter() {
+            @Override
+            String getVersion() {
+                // asked for once per document, before the result is written
+                if (armed.getAndSet(false))
+                    throw new IllegalStateException("No version");
+                return super.getVersion();
+            }
+        };
+        failing.setTokenizeFallback(true);
+        SplitterServer other = new SplitterServer(failing, new InetSocketAddress("127.0.0.1", 0));
+        other.start();
+        try {
+            String input = new Data<>(Discriminators.Uri.TEXT, "Mr. Smith is here. Dr. Who is not.").asJson();
+            URI execute = URI.create("http://127.0.0.1:" + other.getAddress().getPort() + "/execute");
+            HttpRequest request = HttpRequest.newBuilder(execute).POST(HttpRequest.BodyPublishers.ofString(input)).build();
+            armed.set(true);
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            Assert.assertEquals(200, response.statusCode());
+            Data error = Serializer.parse(response.body(), Data.class);
+            Assert.assertEquals(Discriminators.Uri.ERROR, error.getDiscriminator());
+            Assert.assertEquals("No version", error.getPayload());
+            // the server goes on with the next request
+            Assert.assertEquals(failing.execute(input), client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        } finally {
+            other.stop(0);
+        }
+    }
+
+    @org.junit.Test
+    public void testConcurrentRequests() throws Exception {
+        String input = new Data<>(Discriminators.Uri.TEXT, "One sentence. And another one.").asJson();
+        String expected = splitter.execute(input);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/execute"))
+                .POST(HttpRequest.BodyPublishers.ofString(input)).build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        for (CompletableFuture<HttpResponse<String>> response : responses)
+            Assert.assertEquals(expected, response.get().body());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
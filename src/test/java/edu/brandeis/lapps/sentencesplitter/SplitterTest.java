@@ -1,5 +1,7 @@
 package edu.brandeis.lapps.sentencesplitter;
 
+import edu.brandeis.nlp.tokenizer.SplitResult;
+import edu.brandeis.nlp.tokenizer.SplitScratch;
 import edu.brandeis.nlp.tokenizer.Token;
 import org.junit.Assert;
 import org.lappsgrid.discriminator.Discriminators;
@@ -14,10 +16,17 @@ import org.lappsgrid.serialization.lif.View;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SplitterTest {
 
@@ -98,6 +107,24 @@ public class SplitterTest {
         Assert.assertTrue("Sentence not produced", produces.getAnnotations().contains(Discriminators.Uri.SENTENCE));
     }
 
+    @org.junit.Test
+    public void testMetadataWithTokenizeFallback() {
+        splt.setTokenizeFallback(true);
+        Data data = Serializer.parse(splt.getMetadata(), Data.class);
+        ServiceMetadata metadata = new ServiceMetadata((Map) data.getPayload());
+
+        IOSpecification requires = metadata.getRequires();
+        Assert.assertEquals("Two formats should be accepted", 2, requires.getFormat().size());
+        Assert.assertTrue("LIF format not accepted.", requires.getFormat().contains(Discriminators.Uri.LAPPS));
+        Assert.assertTrue("Text format not accepted.", requires.getFormat().contains(Discriminators.Uri.TEXT));
+        Assert.assertTrue("Tokenized input is not required", requires.getAnnotations().isEmpty());
+
+        IOSpecification produces = metadata.getProduces();
+        Assert.assertEquals("Two annotations should be produced", 2, produces.getAnnotations().size());
+        Assert.assertTrue("Token not produced", produces.getAnnotations().contains(Discriminators.Uri.TOKEN));
+        Assert.assertTrue("Sentence not produced", produces.getAnnotations().contains(Discriminators.Uri.SENTENCE));
+    }
+
     @org.junit.Test
     public void testExecuteWithoutLIF() {
         System.out.println(splt.execute("This input is not a well-formed LIF JSON"));
@@ -110,10 +137,307 @@ public class SplitterTest {
         System.out.println(splt.execute(simpleLif));
     }
 
+    @org.junit.Test
+    public void testExecuteWithNoTokenizedInputWithTokenizeFallback() {
+        Data error = Serializer.parse(splt.execute(simpleLif), Data.class);
+        Assert.assertEquals(Discriminators.Uri.ERROR, error.getDiscriminator());
+        splt.setTokenizeFallback(true);
+        String json = splt.execute(simpleLif);
+        Data data = Serializer.parse(json, Data.class);
+        Container container = new Container((Map) data.getPayload());
+        Assert.assertEquals("A token view should be added", 1, container.findViewsThatContain(Discriminators.Uri.TOKEN).size());
+        Assert.assertEquals("[0 15, 16 43, 47 69]", sentences(json).toString());
+    }
+
     @org.junit.Test
     public void testExecuteWithTokenizedInput() {
         System.out.println(tokenizedLif);
         System.out.println("=============================");
         System.out.println(splt.execute(tokenizedLif));
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void testExecuteWithViewsNotAnArray() {
+        String input = "{\"discriminator\": \"" + Discriminators.Uri.LIF + "\", \"payload\": "
+                + "{\"text\": {\"@value\": \"Mr. John is in London.\"}, \"views\": {}}}";
+        splt.setTokenizeFallback(true);
+        Data data = Serializer.parse(splt.execute(input), Data.class);
+        Assert.assertEquals(Discriminators.Uri.ERROR, data.getDiscriminator());
+        splt.setStreaming(false);
+        data = Serializer.parse(splt.execute(input), Data.class);
+        Assert.assertEquals(Discriminators.Uri.ERROR, data.getDiscriminator());
+    }
+
+    @org.junit.Test
+    public void testStreamingAndContainerReadersAgree() {
+        String streamed = splt.execute(tokenizedLif);
+        splt.setStreaming(false);
+        String parsed = splt.execute(tokenizedLif);
+        Assert.assertEquals(sentences(parsed), sentences(streamed));
+    }
+
+    private static List<String> sentences(String json) {
+        Data data = Serializer.parse(json, Data.class);
+        Assert.assertEquals(json, Discriminators.Uri.LIF, data.getDiscriminator());
+        Container container = new Container((Map) data.getPayload());
+        List<View> views = container.findViewsThatContain(Discriminators.Uri.SENTENCE);
+        Assert.assertEquals("One sentence view should be added", 1, views.size());
+        List<String> sentences = new ArrayList<>();
+        for (Annotation a : views.get(0).getAnnotations())
+            sentences.add(a.getStart() + " " + a.getEnd());
+        return sentences;
+    }
+
+    @org.junit.Test
+    public void testExecuteBatch() {
+        splt.setTokenizeFallback(true);
+        String expected = sentences(splt.execute(tokenizedLif)).toString();
+        String batch = "[" + tokenizedLif + ", \"not LIF\", " + simpleLif + "]";
+        List<Map> results = Serializer.parse(splt.executeBatch(batch), List.class);
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(expected, sentences(Serializer.toJson(results.get(0))).toString());
+        Assert.assertEquals(Discriminators.Uri.ERROR, results.get(1).get("discriminator"));
+        Assert.assertEquals(Discriminators.Uri.LIF, results.get(2).get("discriminator"));
+    }
+
+    @org.junit.Test
+    public void testExecuteBatchWithFailingDocument() {
+        List<Map> results = Serializer.parse(failingOnce().executeBatch(
+                "[" + tokenizedLif + ", " + tokenizedLif + ", " + tokenizedLif + "]"), List.class);
+        Assert.assertEquals(3, results.size());
+        int errors = 0;
+        for (Map result : results) {
+            if (Discriminators.Uri.ERROR.equals(result.get("discriminator"))) {
+                Assert.assertEquals(StackOverflowError.class.getName(), result.get("payload"));
+                errors++;
+            } else {
+                Assert.assertEquals(Discriminators.Uri.LIF, result.get("discriminator"));
+            }
+        }
+        Assert.assertEquals(1, errors);
+    }
+
+    @org.junit.Test
+    public void testExecuteBatchJsonLines() {
+        String line = Serializer.parse(tokenizedLif, Data.class).asJson();
+        String expected = sentences(splt.execute(tokenizedLif)).toString();
+        String[] results = splt.executeBatch(line + "\n\n{}\n" + line + "\n").split("\n");
+        Assert.assertEquals(3, results.length);
+        Assert.assertEquals(expected, sentences(results[0]).toString());
+        Assert.assertEquals(Discriminators.Uri.ERROR, Serializer.parse(results[1], Data.class).getDiscriminator());
+        Assert.assertEquals(expected, sentences(results[2]).toString());
+    }
+
+    @org.junit.Test
+    public void testExecuteToWriter() throws Exception {
+        splt.setCompactOutput(true);
+        StringWriter out = new StringWriter();
+        splt.execute(tokenizedLif, out);
+        String result = out.toString();
+        Assert.assertTrue(result.startsWith("{\"discriminator\":"));
+        Assert.assertEquals(result, splt.execute(tokenizedLif));
+        Assert.assertEquals(sentences(new Splitter().execute(tokenizedLif)), sentences(result));
+        // the token view of the input is copied through unchanged
+        Container container = new Container((Map) Serializer.parse(result, Data.class).getPayload());
+        Assert.assertEquals(2, container.getViews().size());
+        Assert.assertEquals(1, container.findViewsThatContain(Discriminators.Uri.TOKEN).size());
+    }
+
+    @org.junit.Test
+    public void testParallelSplitGivesSameResult() {
+        Splitter parallel = new Splitter();
+        parallel.setBatchParallelism(4);
+        parallel.setParallelThreshold(1);
+        parallel.setTokenizeFallback(true);
+        splt.setTokenizeFallback(true);
+        Assert.assertEquals(splt.execute(tokenizedLif), parallel.execute(tokenizedLif));
+        String text = new Data<>(Discriminators.Uri.TEXT, "Hello there. How are you? Fine, thanks.").asJson();
+        Assert.assertEquals(splt.execute(text), parallel.execute(text));
+    }
+
+    @org.junit.Test
+    public void testLeanOutputProfile() {
+        splt.setTokenizeFallback(true);
+        Data data = Serializer.parse(simpleLif, Data.class);
+        String full = splt.execute(data.asJson());
+        data.setParameter("profile", "lean");
+        String lean = splt.execute(data.asJson());
+        Assert.assertEquals(sentences(full), sentences(lean));
+        Assert.assertTrue(full.contains("\"features\""));
+        Assert.assertFalse(lean.contains("\"features\""));
+        Assert.assertTrue(lean.length() < full.length());
+
+        Splitter deployment = new Splitter();
+        deployment.setOutputProfile(Splitter.LEAN);
+        deployment.setTokenizeFallback(true);
+        Assert.assertEquals(lean, deployment.execute(data.asJson()));
+        Assert.assertFalse(deployment.execute(simpleLif).contains("\"features\""));
+        data.setParameter("profile", "full");
+        Assert.assertEquals(full, deployment.execute(data.asJson()));
+        deployment.setStreaming(false);
+        Assert.assertTrue(deployment.execute(data.asJson()).contains("\"features\""));
+        data.setParameter("profile", "lean");
+        Assert.assertFalse(deployment.execute(data.asJson()).contains("\"features\""));
+
+        data.setParameter("profile", "tiny");
+        Data error = Serializer.parse(splt.execute(data.asJson()), Data.class);
+        Assert.assertEquals(Discriminators.Uri.ERROR, error.getDiscriminator());
+        try {
+            deployment.setOutputProfile("tiny");
+            Assert.fail("an unknown profile was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @org.junit.Test
+    public void testExecuteAsync() throws Exception {
+        Splitter async = new Splitter();
+        async.setAsyncThreads(1);
+        async.setTokenizeFallback(true);
+        Assert.assertEquals(splt.execute(tokenizedLif),
+                async.executeAsync(tokenizedLif).toCompletableFuture().get(10, TimeUnit.SECONDS));
+
+        // a large document keeps the only thread busy, so the others wait
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++)
+            text.append("Mr. John is in London. ");
+        String large = new Data<>(Discriminators.Uri.TEXT, text.toString()).asJson();
+        CompletableFuture<String> first = async.executeAsync(large).toCompletableFuture();
+        CompletableFuture<String> cancelled = async.executeAsync(tokenizedLif).toCompletableFuture();
+        CompletableFuture<String> late = async.executeAsync(large, 1, TimeUnit.MILLISECONDS).toCompletableFuture();
+        Assert.assertTrue(cancelled.cancel(true));
+        try {
+            late.get(10, TimeUnit.SECONDS);
+            Assert.fail("the deadline was not kept");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Data result = Serializer.parse(first.get(60, TimeUnit.SECONDS), Data.class);
+        Assert.assertEquals(Discriminators.Uri.LIF, result.getDiscriminator());
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertEquals(splt.execute(tokenizedLif),
+                async.executeAsync(tokenizedLif, 10, TimeUnit.SECONDS).toCompletableFuture().get());
+    }
+
+    @org.junit.Test
+    public void testExecuteAsyncStopsRunningDocument() throws Exception {
+        BlockingSplitter async = new BlockingSplitter();
+        async.setAsyncThreads(1);
+        SplitterMetrics metrics = SplitterMetrics.get();
+        // documents of other tests may still be finishing
+        waitForInFlight(0);
+        long documents = metrics.getDocuments();
+        long errors = metrics.getErrors();
+        long cancelled = metrics.getCancelledDocuments();
+        long serialized = metrics.getSerializeLatency().getCount();
+
+        CompletableFuture<String> running = async.executeAsync(tokenizedLif).toCompletableFuture();
+        Assert.assertTrue(async.splitting.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(running.cancel(true));
+        async.release.countDown();
+        waitForInFlight(0);
+        Assert.assertEquals(cancelled + 1, metrics.getCancelledDocuments());
+        Assert.assertEquals(documents, metrics.getDocuments());
+        Assert.assertEquals(errors, metrics.getErrors());
+        Assert.assertEquals("the result was written", serialized, metrics.getSerializeLatency().getCount());
+        // the thread of the pool goes on with the next document
+        Assert.assertEquals(async.execute(tokenizedLif),
+                async.executeAsync(tokenizedLif).toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+
+    @org.junit.Test
+    public void testExecuteAsyncStopsParallelSplit() throws Exception {
+        BlockingSplitter async = new BlockingSplitter();
+        async.setAsyncThreads(1);
+        async.setBatchParallelism(2);
+        async.setParallelThreshold(1);
+        async.setTokenizeFallback(true);
+        // long enough to be cut into parts for the pool
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 30000; i++)
+            text.append("Mr. John is in London. ");
+        String large = new Data<>(Discriminators.Uri.TEXT, text.toString()).asJson();
+        SplitterMetrics metrics = SplitterMetrics.get();
+        waitForInFlight(0);
+        long documents = metrics.getDocuments();
+        long errors = metrics.getErrors();
+        long cancelled = metrics.getCancelledDocuments();
+        long characters = metrics.getCharacters();
+
+        CompletableFuture<String> running = async.executeAsync(large).toCompletableFuture();
+        Assert.assertTrue(async.splitting.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(running.cancel(true));
+        async.release.countDown();
+        waitForInFlight(0);
+        Assert.assertEquals(cancelled + 1, metrics.getCancelledDocuments());
+        Assert.assertEquals(documents, metrics.getDocuments());
+        Assert.assertEquals(errors, metrics.getErrors());
+        Assert.assertEquals("the text was split", characters, metrics.getCharacters());
+    }
+
+    @org.junit.Test
+    public void testExecuteAsyncFailure() throws Exception {
+        try {
+            failingOnce().executeAsync(tokenizedLif).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            Assert.fail("the error was lost");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+    }
+
+    /**
+     * A splitter that throws a StackOverflowError while it writes its first
+     * document.
+     */
+    private static Splitter failingOnce() {
+        AtomicBoolean armed = new AtomicBoolean();
+        Splitter failing = new Splitter() {
+            @Override
+            String getVersion() {
+                // the version is asked for once per document written
+                if (armed.getAndSet(false))
+                    throw new StackOverflowError();
+                return super.getVersion();
+            }
+        };
+        // the constructor asks for the version too
+        armed.set(true);
+        return failing;
+    }
+
+    /**
+     * A splitter that waits before it splits a document until it is released.
+     * An interrupt while it waits is kept for the split.
+     */
+    private static class BlockingSplitter extends Splitter {
+
+        final CountDownLatch splitting = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        SplitResult split(String text, int[] tokens, SplitScratch scratch) {
+            splitting.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            return super.split(text, tokens, scratch);
+        }
+    }
+
+    private static void waitForInFlight(long documents) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (SplitterMetrics.get().getInFlightDocuments() != documents && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        Assert.assertEquals(documents, SplitterMetrics.get().getInFlightDocuments());
+    }
+}
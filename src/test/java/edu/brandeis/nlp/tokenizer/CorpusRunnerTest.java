@@ -0,0 +1,84 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.junit.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CorpusRunnerTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London.";
+
+    private Path corpus;
+    private Path output;
+
+    @org.junit.Before
+    public void setUp() throws IOException {
+        corpus = Files.createTempDirectory("corpus");
+        output = Files.createTempDirectory("sentences");
+        Files.createDirectories(corpus.resolve("sub"));
+        for (int i = 0; i < 20; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j <= i; j++)
+                text.append(TEXT).append(' ');
+            Path dir = i % 2 == 0 ? corpus : corpus.resolve("sub");
+            write(dir.resolve("doc" + i + ".txt"), text.toString());
+        }
+        write(corpus.resolve("notes.md"), "Not a text file.");
+    }
+
+    @org.junit.Test
+    public void testWritesSentences() throws IOException, InterruptedException {
+        // the tokens of one document come from a token file, with the
+        // abbreviation split off so that its sentences differ
+        write(corpus.resolve("doc0.tok"), "0 4 This\n5 7 is\n8 11 Eve\n12 14 Jr\n14 15 .\n");
+        CorpusRunner runner = new CorpusRunner(3, 1, output);
+        CorpusRunner.Report report = runner.run(Collections.singletonList(corpus));
+        Assert.assertEquals(20, report.documents);
+        Assert.assertEquals(0, report.failed);
+        Assert.assertEquals(210 * TEXT.length(), report.bytes, 20 * 20);
+        for (int i = 1; i < 20; i++) {
+            String name = (i % 2 == 0 ? "" : "sub/") + "doc" + i;
+            String text = read(corpus.resolve(name + ".txt"));
+            Assert.assertEquals(sentences(new SentenceSplitter().tokenize(text)), read(output.resolve(name + ".sent")));
+        }
+        Assert.assertEquals("0 15\n", read(output.resolve("doc0.sent")));
+        Assert.assertFalse(Files.exists(output.resolve("notes.sent")));
+    }
+
+    @org.junit.Test
+    public void testFailuresAreCounted() throws IOException, InterruptedException {
+        write(corpus.resolve("sub/doc1.tok"), "not a token file\n");
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        CorpusRunner runner = new CorpusRunner(1, 2, null);
+        runner.setErrors(new PrintStream(errors, true));
+        CorpusRunner.Report report = runner.run(Arrays.asList(corpus.resolve("doc0.txt"), corpus.resolve("sub")));
+        Assert.assertEquals(10, report.documents);
+        Assert.assertEquals(1, report.failed);
+        Assert.assertTrue(errors.toString().contains("doc1.txt"));
+        Assert.assertTrue(Files.exists(corpus.resolve("doc0.sent")));
+        Assert.assertFalse(Files.exists(corpus.resolve("sub/doc1.sent")));
+        Assert.assertTrue(report.toString().contains("docs/s"));
+    }
+
+    private static String sentences(SplitResult result) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < result.sentenceCount(); i++)
+            lines.append(result.sentenceBegin(i)).append(' ').append(result.sentenceEnd(i)).append('\n');
+        return lines.toString();
+    }
+
+    private static void write(Path path, String text) throws IOException {
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalSplitterTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London.";
+
+    @org.junit.Test
+    public void testChunksMatchSentenceSplitter() {
+        SplitResult expected = new SentenceSplitter().tokenize(TEXT);
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            List<String> sentences = new ArrayList<>();
+            List<String> tokens = new ArrayList<>();
+            IncrementalSplitter splitter = new IncrementalSplitter(collect(sentences, tokens));
+            int offset = 0;
+            while (offset < TEXT.length()) {
+                int end = Math.min(TEXT.length(), offset + random.nextInt(8));
+                splitter.pushText(TEXT.substring(offset, end));
+                offset = end;
+            }
+            splitter.finish();
+            Assert.assertEquals(SentenceSplitterTest.sentences(expected), sentences.toString());
+            Assert.assertEquals(tokens(expected), tokens.toString());
+        }
+    }
+
+    @org.junit.Test
+    public void testPushedTokens() {
+        SplitResult expected = new SentenceSplitter().tokenize(TEXT);
+        List<String> sentences = new ArrayList<>();
+        IncrementalSplitter splitter = new IncrementalSplitter(collect(sentences, new ArrayList<>()), false);
+        splitter.pushText(TEXT);
+        for (int i = 0; i < expected.tokenCount(); i++)
+            splitter.pushToken(expected.tokenBegin(i), expected.tokenEnd(i));
+        splitter.finish();
+        Assert.assertEquals(SentenceSplitterTest.sentences(expected), sentences.toString());
+    }
+
+    @org.junit.Test
+    public void testSentenceEmittedAfterLookahead() {
+        List<String> sentences = new ArrayList<>();
+        IncrementalSplitter splitter = new IncrementalSplitter(collect(sentences, new ArrayList<>()));
+        splitter.pushText("It rained. ");
+        Assert.assertEquals("[0 10]", sentences.toString());
+        // etc. only ends the sentence if an initial token follows
+        splitter.pushText("Bring pens etc. ");
+        Assert.assertEquals(1, sentences.size());
+        splitter.pushText("The");
+        Assert.assertEquals(1, sentences.size());
+        splitter.pushText(" end");
+        Assert.assertEquals("[0 10, 11 26]", sentences.toString());
+        splitter.finish();
+        Assert.assertEquals("[0 10, 11 26, 27 34]", sentences.toString());
+    }
+
+    @org.junit.Test
+    public void testMemoryBoundedByOpenSentence() {
+        IncrementalSplitter splitter = new IncrementalSplitter((sentence, offset) -> { });
+        for (int i = 0; i < 10000; i++) {
+            splitter.pushText("This is sentence " + i + ". ");
+            Assert.assertTrue(splitter.buffered() < 40);
+        }
+        splitter.finish();
+        Assert.assertEquals(0, splitter.buffered());
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testTokenOutsideText() {
+        IncrementalSplitter splitter = new IncrementalSplitter((sentence, offset) -> { }, false);
+        splitter.pushText("short");
+        splitter.pushToken(0, 10);
+    }
+
+    private static IncrementalSplitter.SentenceSink collect(List<String> sentences, List<String> tokens) {
+        return (sentence, offset) -> {
+            sentences.add((offset + sentence.sentenceBegin(0)) + " " + (offset + sentence.sentenceEnd(0)));
+            for (int i = 0; i < sentence.tokenCount(); i++)
+                tokens.add((offset + sentence.tokenBegin(i)) + " " + (offset + sentence.tokenEnd(i)));
+        };
+    }
+
+    private static String tokens(SplitResult result) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < result.tokenCount(); i++)
+            tokens.add(result.tokenBegin(i) + " " + result.tokenEnd(i));
+        return tokens.toString();
+    }
+}
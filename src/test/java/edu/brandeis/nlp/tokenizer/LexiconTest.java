@@ -0,0 +1,34 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.junit.Assert;
+
+import java.util.Arrays;
+
+public class LexiconTest {
+
+    @org.junit.Test
+    public void testCompiledSetsMatchHashSets() {
+        Assert.assertEquals(Abbreviations.ABBREVS.size(), Abbreviations.ABBREV_LEXICON.size());
+        Assert.assertEquals(Token.INITIAL_TOKENS.size(), Token.INITIAL_LEXICON.size());
+        for (String abbrev : Abbreviations.ABBREVS)
+            Assert.assertTrue(abbrev, Abbreviations.ABBREV_LEXICON.contains(abbrev));
+        for (String abbrev : Abbreviations.END_ABBREVS)
+            Assert.assertTrue(abbrev, Abbreviations.END_ABBREV_LEXICON.contains(abbrev));
+        for (String initial : Token.INITIAL_TOKENS)
+            Assert.assertTrue(initial, Token.INITIAL_LEXICON.contains(initial));
+    }
+
+    @org.junit.Test
+    public void testRanges() {
+        Lexicon lexicon = Lexicon.compile(Arrays.asList("Jr.", "Mr.", "m.p.h."));
+        String text = "Mr Smith Jr. drove 60 m.p.h";
+        Assert.assertFalse(lexicon.contains(text, 0, 2));
+        Assert.assertTrue(lexicon.containsWithPeriod(text, 0, 2));
+        Assert.assertTrue(lexicon.contains(text, 9, 12));
+        Assert.assertFalse(lexicon.contains(text, 9, 11));
+        Assert.assertFalse(lexicon.containsWithPeriod(text, 9, 12));
+        Assert.assertTrue(lexicon.containsWithPeriod(text, 22, 27));
+        Assert.assertFalse(lexicon.contains(""));
+        Assert.assertFalse(Lexicon.compile(Arrays.<String>asList()).contains("x"));
+    }
+}
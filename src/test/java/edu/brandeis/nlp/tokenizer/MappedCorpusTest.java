@@ -0,0 +1,65 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.junit.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedCorpusTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London.";
+
+    private File text;
+    private File tokens;
+
+    @org.junit.Before
+    public void setUp() throws IOException {
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+            corpus.append(TEXT).append(" Café naïve ").append(i).append(". Ünïcödé ends here!\n");
+        text = File.createTempFile("corpus", ".txt");
+        tokens = File.createTempFile("corpus", ".tok");
+        text.deleteOnExit();
+        tokens.deleteOnExit();
+        Files.write(text.toPath(), corpus.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @org.junit.Test
+    public void testWindowsMatchSentenceSplitter() throws IOException {
+        String corpus = new String(Files.readAllBytes(text.toPath()), StandardCharsets.UTF_8);
+        String expected = SentenceSplitterTest.sentences(new SentenceSplitter().tokenize(corpus));
+        for (int window : new int[] { 4, 7, 64, MappedCorpus.DEFAULT_WINDOW }) {
+            List<String> sentences = new ArrayList<>();
+            new MappedCorpus(window).tokenize(text.toPath(), collect(sentences));
+            Assert.assertEquals(expected, sentences.toString());
+        }
+    }
+
+    @org.junit.Test
+    public void testSplitWithTokenFile() throws IOException {
+        String corpus = new String(Files.readAllBytes(text.toPath()), StandardCharsets.UTF_8);
+        SplitResult expected = new SentenceSplitter().tokenize(corpus);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < expected.tokenCount(); i++) {
+            Token token = expected.token(i);
+            // mix the two line formats
+            if (i % 2 == 0)
+                lines.append(String.format("%d %d %s\n", token.beginToken, token.endToken, token.text));
+            else
+                lines.append(String.format("%d %d %d %s\n", token.beginSpace, token.beginToken, token.endToken, token.text));
+        }
+        Files.write(tokens.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+        List<String> sentences = new ArrayList<>();
+        new MappedCorpus(64).split(text.toPath(), tokens.toPath(), collect(sentences));
+        Assert.assertEquals(SentenceSplitterTest.sentences(expected), sentences.toString());
+    }
+
+    private static IncrementalSplitter.SentenceSink collect(List<String> sentences) {
+        return (sentence, offset) ->
+                sentences.add((offset + sentence.sentenceBegin(0)) + " " + (offset + sentence.sentenceEnd(0)));
+    }
+}
@@ -0,0 +1,224 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SentenceSplitterTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London.";
+
+    private SentenceSplitter splitter;
+
+    @org.junit.Before
+    public void setUp() {
+        splitter = new SentenceSplitter();
+    }
+
+    @org.junit.Test
+    public void testTokenize() {
+        SplitResult result = splitter.tokenize(TEXT);
+        Assert.assertEquals(20, result.tokenCount());
+        Assert.assertEquals("[0 15, 16 43, 45 67]", sentences(result));
+    }
+
+    @org.junit.Test
+    public void testSplitMatchesTokenize() {
+        SplitResult tokenized = splitter.tokenize(TEXT);
+        int[] offsets = new int[tokenized.tokenCount() * 2];
+        for (int i = 0; i < tokenized.tokenCount(); i++) {
+            offsets[2 * i] = tokenized.tokenBegin(i);
+            offsets[2 * i + 1] = tokenized.tokenEnd(i);
+        }
+        Assert.assertEquals(sentences(tokenized), sentences(splitter.split(TEXT, offsets)));
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testSplitRejectsBadOffsets() {
+        splitter.split("short", new int[] {0, 10});
+    }
+
+    @org.junit.Test
+    public void testSharedBetweenThreads() throws Exception {
+        String expected = sentences(splitter.tokenize(TEXT));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                futures.add(pool.submit(() -> sentences(splitter.tokenize(TEXT))));
+            for (Future<String> future : futures)
+                Assert.assertEquals(expected, future.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @org.junit.Test
+    public void testScratchReuse() {
+        SplitScratch scratch = new SplitScratch();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            large.append(TEXT).append(' ');
+        for (String text : new String[] { TEXT, large.toString(), "", "Short. Text.", TEXT }) {
+            SplitResult expected = splitter.tokenize(text);
+            SplitResult result = splitter.tokenize(text, scratch);
+            Assert.assertEquals(sentences(expected), sentences(result));
+            Assert.assertEquals(expected.tokenCount(), result.tokenCount());
+            int[] offsets = new int[expected.tokenCount() * 2];
+            for (int i = 0; i < expected.tokenCount(); i++) {
+                offsets[2 * i] = expected.tokenBegin(i);
+                offsets[2 * i + 1] = expected.tokenEnd(i);
+            }
+            Assert.assertEquals(sentences(expected), sentences(splitter.split(text, offsets, scratch)));
+        }
+        Assert.assertFalse(scratch.isOversized());
+    }
+
+    @org.junit.Test
+    public void testLazySentences() {
+        SplitResult result = splitter.tokenize(TEXT);
+        TokenizedText eager = result.toTokenizedText();
+        int[] offsets = result.sentenceOffsets();
+        Assert.assertEquals(2 * result.sentenceCount(), offsets.length);
+        int i = 0;
+        for (Sentence sentence : result.sentences()) {
+            Sentence expected = eager.sentences.get(i);
+            Assert.assertEquals(expected.begin, sentence.begin);
+            Assert.assertEquals(expected.end, sentence.end);
+            Assert.assertEquals(expected.begin, offsets[2 * i]);
+            Assert.assertEquals(expected.end, offsets[2 * i + 1]);
+            Assert.assertEquals(expected.tokens.size(), sentence.tokens.size());
+            Assert.assertEquals(expected.tokens.get(0).text, sentence.tokens.get(0).text);
+            Assert.assertNull(sentence.tokens.get(0).previous);
+            i++;
+        }
+        Assert.assertEquals(result.sentenceCount(), i);
+    }
+
+    @org.junit.Test
+    public void testParallelMatchesSequential() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            text.append(TEXT).append(i % 3 == 0 ? "\n\n" : " etc. ");
+        SplitResult expected = splitter.tokenize(text);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int partition : new int[] { 1, 7, 100, 1000 }) {
+                SplitResult result = splitter.tokenize(text, pool, partition);
+                Assert.assertEquals(sentences(expected), sentences(result));
+                Assert.assertEquals(expected.tokenCount(), result.tokenCount());
+                for (int i = 0; i < expected.tokenCount(); i++)
+                    Assert.assertEquals(expected.token(i).toString(), result.token(i).toString());
+            }
+            int[] offsets = new int[expected.tokenCount() * 2];
+            for (int i = 0; i < expected.tokenCount(); i++) {
+                offsets[2 * i] = expected.tokenBegin(i);
+                offsets[2 * i + 1] = expected.tokenEnd(i);
+            }
+            Assert.assertEquals(sentences(expected), sentences(splitter.split(text, offsets, pool)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @org.junit.Test
+    public void testTokenizerWrapper() {
+        TokenizedText result = new Tokenizer().tokenizeText(TEXT);
+        Assert.assertEquals(3, result.sentences.size());
+        Assert.assertEquals(20, result.tokens.size());
+        Assert.assertEquals(result.tokens.get(1), result.tokens.get(0).next);
+    }
+
+    @org.junit.Test
+    public void testResplitMatchesTokenize() {
+        // pieces that make sentence ends come and go, also inside whitespace
+        // separated parts of the text
+        String[] pieces = { " ", "\n\n", ".", "\"", "Mr.", "Dr", "etc.", " John", "cat", "?!", "A.", " it is", "." };
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++)
+            text.append(TEXT).append(' ');
+        int[] sentences = splitter.tokenize(text).sentenceOffsets();
+        for (int n = 0; n < 3000; n++) {
+            int offset = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(4) == 0 ? 0 : random.nextInt(Math.min(12, text.length() - offset) + 1);
+            StringBuilder inserted = new StringBuilder();
+            for (int i = random.nextInt(4); i > 0; i--)
+                inserted.append(pieces[random.nextInt(pieces.length)]);
+            if (random.nextInt(100) == 0)
+                inserted.append(TEXT);
+            text.replace(offset, offset + removed, inserted.toString());
+            int[] expected = splitter.tokenize(text).sentenceOffsets();
+            int[] result = splitter.resplit(text, sentences, offset, removed, inserted.length());
+            Assert.assertEquals("edit " + n + " at " + offset, Arrays.toString(expected), Arrays.toString(result));
+            sentences = result;
+        }
+        // a sentence long enough to be tokenized with the whitespace masks
+        StringBuilder longText = new StringBuilder(TEXT).append(' ');
+        for (int i = 0; i < 100; i++)
+            longText.append("word\t ");
+        longText.append("end. ").append(TEXT);
+        sentences = splitter.tokenize(longText).sentenceOffsets();
+        longText.insert(TEXT.length() + 50, "Mr. Smith. Mr");
+        Assert.assertArrayEquals(splitter.tokenize(longText).sentenceOffsets(),
+                splitter.resplit(longText, sentences, TEXT.length() + 50, 0, 13));
+        Assert.assertArrayEquals(new int[0], splitter.resplit("   ", new int[0], 1, 1, 0));
+        Assert.assertArrayEquals(new int[] { 0, 3 }, splitter.resplit("Hi.", new int[0], 0, 0, 3));
+        try {
+            splitter.resplit("Hi.", new int[] { 0, 3 }, 2, 0, 5);
+            Assert.fail("an edit past the end of the text was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @org.junit.Test
+    public void testWhitespaceMasks() {
+        // ASCII whitespace, control characters that are and are not
+        // whitespace, whitespace beyond ASCII, and non-breaking spaces that
+        // are not whitespace
+        String characters = "ab.,\"?!  \t\n\r\u000B\f\u001C\u001F\u0000\u0008\u000E\u001B!\u007F\u0080"
+                + "\u00A0\u1680\u2000\u2007\u2028\u202F\u3000\u8000\uFFFF";
+        Random random = new Random(42);
+        List<WhitespaceMask> masks = new ArrayList<>();
+        masks.add(WhitespaceMask.SCALAR);
+        // set by the test run of the vector profile, which must not fall back
+        if (Boolean.getBoolean("edu.brandeis.nlp.tokenizer.vector.expected"))
+            Assert.assertNotNull("no vector scanning", WhitespaceMask.INSTANCE);
+        if (WhitespaceMask.INSTANCE != null)
+            masks.add(WhitespaceMask.INSTANCE);
+        for (int n = 0; n < 200; n++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(5000); i > 0; i--)
+                text.append(random.nextInt(3) == 0 ? characters.charAt(random.nextInt(characters.length())) : 'x');
+            String string = text.toString();
+            int from = string.isEmpty() ? 0 : random.nextInt(string.length());
+            TokenBuffer expected = new TokenBuffer();
+            SentenceSplitter.tokenize(string, from, string.length(), expected, null);
+            for (WhitespaceMask mask : masks) {
+                TokenBuffer tokens = new TokenBuffer();
+                SentenceSplitter.tokenize(string, from, string.length(), tokens, mask);
+                Assert.assertEquals(expected.size(), tokens.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    Assert.assertEquals(expected.beginSpace(i), tokens.beginSpace(i));
+                    Assert.assertEquals(expected.begin(i), tokens.begin(i));
+                    Assert.assertEquals(expected.end(i), tokens.end(i));
+                }
+            }
+        }
+    }
+
+    static String sentences(SplitResult result) {
+        List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < result.sentenceCount(); i++)
+            sentences.add(result.sentenceBegin(i) + " " + result.sentenceEnd(i));
+        return sentences.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package edu.brandeis.nlp.tokenizer;
+
+import org.junit.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TokenFileTest {
+
+    private static final String TEXT = "This is Eve Jr. And the \"cat\", it is awake.\n\nMr. John is in London. ";
+
+    private File text;
+    private File tokens;
+    private File binary;
+    private SplitResult expected;
+
+    @org.junit.Before
+    public void setUp() throws IOException {
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            corpus.append(TEXT);
+            // long gaps make for multi-byte varints
+            for (int j = 0; i % 10 == 0 && j < 200; j++)
+                corpus.append('\n');
+        }
+        text = File.createTempFile("corpus", ".txt");
+        tokens = File.createTempFile("corpus", ".tok");
+        binary = File.createTempFile("corpus", ".btok");
+        text.deleteOnExit();
+        tokens.deleteOnExit();
+        binary.deleteOnExit();
+        Files.write(text.toPath(), corpus.toString().getBytes(StandardCharsets.UTF_8));
+        expected = new SentenceSplitter().tokenize(corpus);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < expected.tokenCount(); i++) {
+            Token token = expected.token(i);
+            lines.append(String.format("%d %d %s\n", token.beginToken, token.endToken, token.text));
+        }
+        Files.write(tokens.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @org.junit.Test
+    public void testConvert() throws IOException {
+        Assert.assertEquals(expected.tokenCount(), TokenFile.convert(tokens.toPath(), binary.toPath()));
+        Assert.assertTrue(TokenFile.isBinary(binary.toPath()));
+        Assert.assertFalse(TokenFile.isBinary(tokens.toPath()));
+        Assert.assertArrayEquals(TokenFile.read(tokens.toPath()), TokenFile.read(binary.toPath()));
+        Assert.assertArrayEquals(offsets(expected), TokenFile.read(binary.toPath()));
+        Assert.assertTrue(binary.length() < tokens.length() / 3);
+    }
+
+    @org.junit.Test
+    public void testSmallWindows() throws IOException {
+        int[] offsets = { 0, 1, 200, 70000, 70000, 70001, 5000000, 2000000000 };
+        TokenFile.write(binary.toPath(), offsets);
+        Assert.assertArrayEquals(offsets, TokenFile.read(binary.toPath()));
+        try (TokenFile.Reader reader = TokenFile.Reader.open(binary.toPath(), 36)) {
+            Assert.assertEquals(4, reader.count());
+            List<Long> read = new ArrayList<>();
+            while (reader.next()) {
+                read.add(reader.begin);
+                read.add(reader.end);
+            }
+            Assert.assertEquals("[0, 1, 200, 70000, 70000, 70001, 5000000, 2000000000]", read.toString());
+        }
+        int[] many = offsets(expected);
+        TokenFile.write(binary.toPath(), many);
+        try (TokenFile.Reader reader = TokenFile.Reader.open(binary.toPath(), 36)) {
+            int i = 0;
+            while (reader.next()) {
+                Assert.assertEquals(many[i++], reader.begin);
+                Assert.assertEquals(many[i++], reader.end);
+            }
+            Assert.assertEquals(many.length, i);
+        }
+    }
+
+    @org.junit.Test
+    public void testRecordsInMemory() throws IOException {
+        // the records are those of the file, which has a header in front
+        int[] offsets = offsets(expected);
+        TokenFile.write(binary.toPath(), offsets);
+        byte[] file = Files.readAllBytes(binary.toPath());
+        byte[] records = TokenFile.encode(offsets);
+        Assert.assertArrayEquals(Arrays.copyOfRange(file, TokenFile.HEADER, file.length), records);
+        Assert.assertArrayEquals(offsets, TokenFile.decode(records));
+        Assert.assertEquals(0, TokenFile.decode(new byte[0]).length);
+        try {
+            TokenFile.decode(Arrays.copyOf(records, records.length - 1));
+            Assert.fail("truncated records were decoded");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @org.junit.Test
+    public void testSplitWithBinaryTokens() throws IOException {
+        TokenFile.convert(tokens.toPath(), binary.toPath());
+        List<String> sentences = new ArrayList<>();
+        new MappedCorpus(64).split(text.toPath(), binary.toPath(), (sentence, offset) ->
+                sentences.add((offset + sentence.sentenceBegin(0)) + " " + (offset + sentence.sentenceEnd(0))));
+        Assert.assertEquals(SentenceSplitterTest.sentences(expected), sentences.toString());
+        TokenizedText fromText = new Tokenizer().splitFile(text, tokens);
+        TokenizedText fromBinary = new Tokenizer().splitFile(text, binary);
+        Assert.assertEquals(fromText.sentences.size(), fromBinary.sentences.size());
+        for (int i = 0; i < fromText.sentences.size(); i++)
+            Assert.assertEquals(fromText.sentences.get(i).end, fromBinary.sentences.get(i).end);
+    }
+
+    @org.junit.Test
+    public void testRejectsBadInput() throws IOException {
+        try {
+            TokenFile.write(binary.toPath(), new int[] { 5, 10, 8, 12 });
+            Assert.fail("overlapping tokens were accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Path truncated = binary.toPath();
+        TokenFile.write(truncated, new int[] { 0, 300, 400, 1000 });
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        try {
+            TokenFile.read(truncated);
+            Assert.fail("a truncated file was read");
+        } catch (IOException e) {
+            // expected
+        }
+        // a count in the header that the records cannot hold
+        ByteBuffer.wrap(bytes).putLong(8, Integer.MAX_VALUE / 2);
+        Files.write(truncated, bytes);
+        try {
+            TokenFile.read(truncated);
+            Assert.fail("a corrupt token count was read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static int[] offsets(SplitResult result) {
+        int[] offsets = new int[result.tokenCount() * 2];
+        for (int i = 0; i < result.tokenCount(); i++) {
+            offsets[2 * i] = result.tokenBegin(i);
+            offsets[2 * i + 1] = result.tokenEnd(i);
+        }
+        return offsets;
+    }
+}